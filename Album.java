@@ -1,19 +1,28 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Represents a music album containing a collection of songs in LIFO order. Uses LinkedStack to
- * maintain the ordering of songs.
+ * Represents a music album containing a collection of songs in LIFO order. Uses LinkedStack by
+ * default to maintain the ordering of songs; any other StackADT, such as an ArrayStack for large
+ * albums, can be supplied instead. An album built on a ConcurrentLinkedStack can be filled and
+ * emptied by several threads at once.
  * 
  * @author rishabhaggarwal
  */
 public class Album {
 
-  private String albumName; // Name of the album
+  private Name albumName; // Name of the album, shared with other albums of that name
 
-  private int size; // Number of songs in the album
+  private StackADT<Song> trackList; // Stack to store songs
 
-  private LinkedStack<Song> trackList; // Stack to store songs
+  private Map<SongKey, Integer> trackIndex; // Number of songs in trackList with each identity
+
+  private String rendered; // Result of toString, or null if the album changed since it was built
+
+  private int renderedMoves; // Song.moves() when rendered was built
 
   /**
    * Creates a new Album with the specified name.
@@ -23,15 +32,38 @@ public class Album {
    */
   public Album(String albumName) {
 
-    if (albumName == null || albumName.isEmpty()) {
+    this(albumName, new LinkedStack<Song>());
+
+  }
+
+  /**
+   * Creates a new Album with the specified name that stores its songs in the given stack. An
+   * ArrayStack keeps large albums in one contiguous array instead of one node per song, and a
+   * ConcurrentLinkedStack makes the album safe to share between threads.
+   *
+   * @param albumName the name of the album
+   * @param trackList empty stack to store the album's songs
+   * @throws IllegalArgumentException if albumName is null or empty, or trackList is null or not
+   *                                  empty
+   */
+  public Album(String albumName, StackADT<Song> trackList) {
+
+    if (albumName == null || albumName.isEmpty() || trackList == null || !trackList.isEmpty()) {
       throw new IllegalArgumentException();
     }
 
     // Initialize album with empty track list
 
-    this.albumName = albumName;
-    this.size = 0;
-    this.trackList = new LinkedStack<Song>();
+    this.albumName = Name.of(albumName);
+    this.trackList = trackList;
+
+    // A lock-free track list needs an index that is just as safe to share
+
+    if (trackList instanceof ConcurrentLinkedStack) {
+      this.trackIndex = new ConcurrentHashMap<SongKey, Integer>();
+    } else {
+      this.trackIndex = new HashMap<SongKey, Integer>();
+    }
 
   }
 
@@ -43,23 +75,56 @@ public class Album {
    */
   public void addSong(Song s) {
 
-    // Check for duplicate songs
+    addSong(s, s.keyIn(this));
+
+  }
 
-    ArrayList<Song> songs = trackList.getList();
+  /**
+   * Adds a song to the album if it doesn't already exist, given the identity it has in this album
+   * as returned by {@link Song#keyIn(Album)}. Lets callers such as CatalogImporter compute keys
+   * ahead of time, on other threads.
+   *
+   * @param s   the song to add
+   * @param key the identity of the song in this album
+   * @throws IllegalArgumentException if song already exists in album
+   */
+  void addSong(Song s, SongKey key) {
 
-    for (Song song : songs) {
+    // Only a song that already has its identity in this album (it sits in an album of the same
+    // name) can be a duplicate, as in a plain equals check. Any other song is counted under that
+    // identity, so the album may hold several equal songs, and removing one leaves the others
 
-      if (song.equals(s)) {
+    if (key.equals(s.getKey())) {
+
+      if (trackIndex.putIfAbsent(key, 1) != null) {
         throw new IllegalArgumentException();
       }
 
+    } else {
+      trackIndex.merge(key, 1, Integer::sum);
     }
 
     // Add song and update album reference
 
-    s.setAlbum(this);
+    s.setAlbum(this, key);
+    trackList.push(s);
+    rendered = null;
+
+  }
+
+  /**
+   * Adds a song that is known not to be in the album yet, with its identity in this album already
+   * computed, skipping the duplicate check. Used to materialize albums from a Catalog.
+   *
+   * @param s   the song to add
+   * @param key the identity of the song in this album
+   */
+  void addTrack(Song s, SongKey key) {
+
+    trackIndex.merge(key, 1, Integer::sum);
+    s.setAlbum(this, key);
     trackList.push(s);
-    size++;
+    rendered = null;
 
   }
 
@@ -70,10 +135,6 @@ public class Album {
    */
   public Song firstSong() {
 
-    if (size == 0) {
-      return null;
-    }
-
     return trackList.peek();
 
   }
@@ -85,6 +146,17 @@ public class Album {
    */
   public String getAlbumName() {
 
+    return this.albumName.toString();
+
+  }
+
+  /**
+   * Returns the pooled name of the album.
+   *
+   * @return album name
+   */
+  Name getName() {
+
     return this.albumName;
 
   }
@@ -97,13 +169,32 @@ public class Album {
    */
   public Song removeSong() {
 
-    if (size == 0) {
+    Song song = trackList.pop();
+
+    if (song == null) {
       throw new NoSuchElementException();
     }
 
-    size--;
+    // Every track was counted under its identity in this album, which a song that has since moved
+    // to another album no longer carries, so that identity is derived again from its name
+
+    SongKey added = song.getAlbum() == this ? song.getKey() : song.keyIn(this);
+    trackIndex.computeIfPresent(added, (key, count) -> count > 1 ? count - 1 : null);
+    rendered = null;
+
+    return song;
+
+  }
+
+  /**
+   * Returns the songs of the album from the most recently added to the first, without removing
+   * them.
+   *
+   * @return the album's songs in LIFO order
+   */
+  Iterable<Song> tracks() {
 
-    return trackList.pop();
+    return trackList;
 
   }
 
@@ -114,40 +205,95 @@ public class Album {
    */
   public int size() {
 
-    return this.size;
+    return trackList.size();
 
   }
 
   /**
-   * Returns string representation of album. Format: albumName\nsong1\nsong2\n...
+   * Returns string representation of album. Format: albumName\nsong1\nsong2\n... The string is
+   * kept until a song is added or removed, or any song moves to another album, so repeated calls on
+   * an unchanged album cost nothing. An album built on a ConcurrentLinkedStack renders afresh every
+   * time, since another thread may change it while it is being rendered.
    *
    * @return formatted string of album contents
    */
   public String toString() {
 
-    if (size == 0) {
-      return albumName;
+    // A song that moved to another album since shows a different album name
+
+    int moves = Song.moves();
+
+    if (rendered != null && renderedMoves == moves) {
+      return rendered;
+    }
+
+    if (trackList.isEmpty()) {
+      return albumName.toString();
     }
 
     // Build string with album name and songs
 
     StringBuilder sb = new StringBuilder();
 
-    sb.append(albumName).append("\n");
+    sb.append(albumName);
 
-    ArrayList<Song> list = trackList.getList();
+    // Walk the track list in place, top to bottom
 
-    for (int i = 0; i < list.size(); i++) {
+    for (Song song : trackList) {
 
-      sb.append(list.get(i).toString());
+      sb.append("\n").append(song.toString());
 
-      if (i < list.size() - 1) {
-        sb.append("\n");
-      }
+    }
+
+    String result = sb.toString();
 
+    if (!(trackList instanceof ConcurrentLinkedStack)) {
+      rendered = result;
+      renderedMoves = moves;
     }
 
-    return sb.toString();
+    return result;
+
+  }
+
+  /**
+   * Writes the album in the format of toString, streaming the songs to out instead of building a
+   * string. At most limit songs are written, most recent first; if any are left out, a final line
+   * "..." stands in for them.
+   *
+   * @param out   where to write the album
+   * @param limit maximum number of songs to write
+   * @throws IllegalArgumentException if out is null or limit is negative
+   * @throws IOException              if out cannot be written
+   */
+  public void renderTo(Appendable out, int limit) throws IOException {
+
+    if (out == null || limit < 0) {
+      throw new IllegalArgumentException();
+    }
+
+    if (rendered != null && renderedMoves == Song.moves() && limit >= trackList.size()) {
+      out.append(rendered);
+      return;
+    }
+
+    out.append(albumName.toString());
+
+    // Walk the track list in place, top to bottom
+
+    int written = 0;
+
+    for (Song song : trackList) {
+
+      if (written == limit) {
+        out.append("\n...");
+        break;
+      }
+
+      out.append("\n").append(song.toString());
+      written++;
+
+    }
 
   }
 }
@@ -0,0 +1,385 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.random.RandomGenerator;
+
+/**
+ * A generic queue implementation using a circular array. Implements the QueueADT interface to
+ * provide FIFO (First-In-First-Out) functionality. Elements are stored contiguously, so enqueue and
+ * dequeue allocate nothing once the array is large enough. The array doubles when it fills up.
+ *
+ * @param <T> the type of elements stored in the queue
+ * @author rishabhaggarwal
+ */
+public class ArrayQueue<T> implements QueueADT<T> {
+
+  private static final int DEFAULT_CAPACITY = 16; // Initial array length for the no-arg constructor
+
+  private Object[] elements; // Circular buffer holding the queued elements
+
+  private int front; // Index of the first element in queue
+
+  private int size; // Number of elements in queue
+
+  private int modCount; // Number of structural changes, used by iterators to fail fast
+
+  /**
+   * Creates an empty queue with a default initial capacity.
+   */
+  public ArrayQueue() {
+
+    this(DEFAULT_CAPACITY);
+
+  }
+
+  /**
+   * Creates an empty queue able to hold initialCapacity elements before it has to grow.
+   *
+   * @param initialCapacity number of elements to pre-size the array for
+   * @throws IllegalArgumentException if initialCapacity is negative
+   */
+  public ArrayQueue(int initialCapacity) {
+
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException();
+    }
+
+    elements = new Object[initialCapacity];
+
+  }
+
+  /**
+   * Adds a new element to the back of the queue.
+   *
+   * @param value the element to be added to the queue
+   */
+  @Override
+  public void enqueue(T value) {
+
+    if (size == elements.length) {
+      grow(size + 1);
+    }
+
+    elements[index(size)] = value;
+    size++;
+    modCount++;
+
+  }
+
+  /**
+   * Adds all of the given elements to the back of the queue, growing the array at most once.
+   *
+   * @param values the elements to be added to the queue
+   */
+  @Override
+  public void enqueueAll(Collection<? extends T> values) {
+
+    if (size + values.size() > elements.length) {
+      grow(size + values.size());
+    }
+
+    for (T value : values) {
+      elements[index(size++)] = value;
+    }
+
+    modCount++;
+
+  }
+
+  /**
+   * Removes and returns the element at the front of the queue.
+   *
+   * @return the first element in queue, or null if empty
+   */
+  @Override
+  public T dequeue() {
+
+    if (this.isEmpty()) {
+      return null;
+    }
+
+    T value = elementAt(0);
+
+    // Clear the slot so the array does not keep the element alive
+
+    elements[front] = null;
+    front = index(1);
+    size--;
+    modCount++;
+
+    return value;
+
+  }
+
+  /**
+   * Returns the element at the front of the queue without removing it.
+   *
+   * @return the first element in queue, or null if empty
+   */
+  @Override
+  public T peek() {
+
+    if (this.isEmpty()) {
+      return null;
+    }
+
+    return elementAt(0);
+
+  }
+
+  /**
+   * Checks if the queue is empty.
+   *
+   * @return true if queue contains no elements
+   */
+  @Override
+  public boolean isEmpty() {
+
+    return size == 0;
+
+  }
+
+  /**
+   * Returns the number of elements in the queue.
+   *
+   * @return current size of queue
+   */
+  @Override
+  public int size() {
+
+    return this.size;
+
+  }
+
+  /**
+   * Removes all elements from the queue. The array keeps its current length.
+   */
+  @Override
+  public void clear() {
+
+    // Null out the occupied slots, which may wrap around the end of the array
+
+    int end = front + size;
+
+    if (end <= elements.length) {
+      Arrays.fill(elements, front, end, null);
+    } else {
+      Arrays.fill(elements, front, elements.length, null);
+      Arrays.fill(elements, 0, end - elements.length, null);
+    }
+
+    front = 0;
+    size = 0;
+    modCount++;
+
+  }
+
+  /**
+   * Checks if a specific element exists in the queue.
+   *
+   * @param value element to search for
+   * @return true if element is found
+   */
+  @Override
+  public boolean contains(T value) {
+
+    for (int i = 0; i < size; i++) {
+
+      if (elementAt(i).equals(value)) {
+        return true;
+      }
+
+    }
+
+    return false;
+
+  }
+
+  /**
+   * Creates an ArrayList containing all elements in the queue. Elements are ordered from front to
+   * back.
+   *
+   * @return ArrayList containing queue elements in FIFO order
+   */
+  @Override
+  public ArrayList<T> getList() {
+
+    ArrayList<T> list = new ArrayList<T>(size);
+
+    for (int i = 0; i < size; i++) {
+      list.add(elementAt(i));
+    }
+
+    return list;
+
+  }
+
+  /**
+   * Creates an ArrayList containing the elements at positions from (inclusive) to to (exclusive),
+   * reading them straight from the array without visiting the elements before them.
+   *
+   * @param from position of the first element to return
+   * @param to   position after the last element to return
+   * @return ArrayList containing the elements in that window in FIFO order
+   * @throws IllegalArgumentException if from is negative or to is less than from
+   */
+  @Override
+  public ArrayList<T> range(int from, int to) {
+
+    if (from < 0 || to < from) {
+      throw new IllegalArgumentException();
+    }
+
+    int end = Math.min(to, size);
+    ArrayList<T> list = new ArrayList<T>(Math.max(0, end - from));
+
+    for (int i = from; i < end; i++) {
+      list.add(elementAt(i));
+    }
+
+    return list;
+
+  }
+
+  /**
+   * Randomly reorders the elements in the queue with a Fisher-Yates shuffle directly on the
+   * circular array.
+   *
+   * @param random the source of randomness
+   */
+  @Override
+  public void shuffle(RandomGenerator random) {
+
+    for (int i = size - 1; i > 0; i--) {
+
+      int a = index(i);
+      int b = index(random.nextInt(i + 1));
+      Object swap = elements[a];
+      elements[a] = elements[b];
+      elements[b] = swap;
+
+    }
+
+    modCount++;
+
+  }
+
+  /**
+   * Returns an iterator over the queue from front to back. The iterator reads the array in place
+   * and throws ConcurrentModificationException if the queue is modified while iterating.
+   *
+   * @return iterator over the queued elements in FIFO order
+   */
+  @Override
+  public Iterator<T> iterator() {
+
+    return new QueueIterator();
+
+  }
+
+  /**
+   * Returns a spliterator over the queue from front to back that reports the queue's size.
+   *
+   * @return spliterator over the queued elements in FIFO order
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+
+    return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+
+  }
+
+  /**
+   * Returns the element at the given position counted from the front of the queue.
+   *
+   * @param i position from the front, between 0 and size - 1
+   * @return the element at that position
+   */
+  @SuppressWarnings("unchecked")
+  private T elementAt(int i) {
+
+    return (T) elements[index(i)];
+
+  }
+
+  /**
+   * Maps a position counted from the front of the queue to an array index.
+   *
+   * @param i position from the front
+   * @return index into the circular array
+   */
+  private int index(int i) {
+
+    int index = front + i;
+
+    return index < elements.length ? index : index - elements.length;
+
+  }
+
+  /**
+   * Doubles the array length, or more if minLength requires it, unwrapping the elements so the
+   * front is at index 0.
+   *
+   * @param minLength the smallest array length that is needed
+   */
+  private void grow(int minLength) {
+
+    int newLength = Math.max(1, elements.length * 2);
+
+    if (newLength < 0) {
+      newLength = Integer.MAX_VALUE - 8; // Array length overflowed
+    }
+
+    newLength = Math.max(newLength, minLength);
+
+    Object[] grown = new Object[newLength];
+
+    // Copy the part from front to the end of the array, then the wrapped part
+
+    int firstPart = Math.min(size, elements.length - front);
+
+    System.arraycopy(elements, front, grown, 0, firstPart);
+    System.arraycopy(elements, 0, grown, firstPart, size - firstPart);
+
+    elements = grown;
+    front = 0;
+
+  }
+
+  /**
+   * Fail-fast iterator that reads the circular array from front to back.
+   */
+  private class QueueIterator implements Iterator<T> {
+
+    private int position; // Position from the front of the next element to return
+
+    private final int expectedModCount = modCount; // Queue version this iterator was created at
+
+    @Override
+    public boolean hasNext() {
+
+      return position < size;
+
+    }
+
+    @Override
+    public T next() {
+
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      if (position >= size) {
+        throw new NoSuchElementException();
+      }
+
+      return elementAt(position++);
+
+    }
+  }
+}
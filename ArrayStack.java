@@ -0,0 +1,286 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * A stack implementation using a resizable array. The top of the stack is the last used slot, so
+ * push and pop touch a single array element and only allocate when the array has to grow.
+ *
+ * @param <T> the type of elements stored in the stack
+ * @author rishabhaggarwal
+ */
+public class ArrayStack<T> implements StackADT<T> {
+
+  private static final int DEFAULT_CAPACITY = 10; // Initial array length for the no-arg constructor
+
+  private Object[] elements; // Stack elements, bottom at index 0
+
+  private int size; // Number of elements in the stack
+
+  private int modCount; // Number of structural changes, used by iterators to fail fast
+
+  /**
+   * Creates an empty stack with a default initial capacity.
+   */
+  public ArrayStack() {
+
+    this(DEFAULT_CAPACITY);
+
+  }
+
+  /**
+   * Creates an empty stack able to hold initialCapacity elements before it has to grow.
+   *
+   * @param initialCapacity number of elements to pre-size the array for
+   * @throws IllegalArgumentException if initialCapacity is negative
+   */
+  public ArrayStack(int initialCapacity) {
+
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException();
+    }
+
+    elements = new Object[initialCapacity];
+
+  }
+
+  /**
+   * Adds a new element to the top of the stack. Grows the array by half its length when full, so
+   * pushes run in amortized constant time.
+   *
+   * @param value the element to be added to the stack
+   */
+  @Override
+  public void push(T value) {
+
+    if (size == elements.length) {
+      grow();
+    }
+
+    elements[size++] = value;
+    modCount++;
+
+  }
+
+  /**
+   * Removes and returns the element at the top of the stack.
+   *
+   * @return the most recently added element, or null if stack is empty
+   */
+  @Override
+  public T pop() {
+
+    if (this.isEmpty()) {
+      return null;
+    }
+
+    T value = elementAt(--size);
+
+    // Clear the slot so the array does not keep the element alive
+
+    elements[size] = null;
+    modCount++;
+
+    return value;
+
+  }
+
+  /**
+   * Returns the element at the top of the stack without removing it.
+   *
+   * @return the most recently added element, or null if stack is empty
+   */
+  @Override
+  public T peek() {
+
+    if (this.isEmpty()) {
+      return null;
+    }
+
+    return elementAt(size - 1);
+
+  }
+
+  /**
+   * Checks if the stack is empty.
+   *
+   * @return true if stack contains no elements, false otherwise
+   */
+  @Override
+  public boolean isEmpty() {
+
+    return size == 0;
+
+  }
+
+  /**
+   * Checks if a specific element exists in the stack.
+   *
+   * @param value the element to search for
+   * @return true if element is found in stack, false otherwise
+   */
+  @Override
+  public boolean contains(T value) {
+
+    for (int i = size - 1; i >= 0; i--) {
+
+      if (elementAt(i).equals(value)) {
+        return true;
+      }
+
+    }
+
+    return false;
+
+  }
+
+  /**
+   * Creates an ArrayList containing all elements in the stack. Elements are ordered from top to
+   * bottom.
+   *
+   * @return ArrayList containing stack elements in LIFO order
+   */
+  @Override
+  public ArrayList<T> getList() {
+
+    ArrayList<T> list = new ArrayList<T>(size);
+
+    for (int i = size - 1; i >= 0; i--) {
+      list.add(elementAt(i));
+    }
+
+    return list;
+
+  }
+
+  /**
+   * Returns the element at the given position counted from the top of the stack, so get(0) is the
+   * same element as peek().
+   *
+   * @param index position from the top, between 0 and size() - 1
+   * @return the element at that position
+   * @throws IndexOutOfBoundsException if index is out of range
+   */
+  public T get(int index) {
+
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+
+    return elementAt(size - 1 - index);
+
+  }
+
+  /**
+   * Returns the number of elements in the stack.
+   *
+   * @return current size of stack
+   */
+  @Override
+  public int size() {
+
+    return this.size;
+
+  }
+
+  /**
+   * Shrinks the backing array to the number of elements in the stack. Useful once an album has
+   * been fully loaded and will not grow further.
+   */
+  public void trimToSize() {
+
+    if (size < elements.length) {
+      elements = Arrays.copyOf(elements, size);
+    }
+
+  }
+
+  /**
+   * Returns an iterator over the stack from top to bottom. The iterator reads the array in place
+   * and throws ConcurrentModificationException if the stack is modified while iterating.
+   *
+   * @return iterator over the stacked elements in LIFO order
+   */
+  @Override
+  public Iterator<T> iterator() {
+
+    return new StackIterator();
+
+  }
+
+  /**
+   * Returns a spliterator over the stack from top to bottom that reports the stack's size.
+   *
+   * @return spliterator over the stacked elements in LIFO order
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+
+    return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+
+  }
+
+  /**
+   * Returns the element stored at the given array index.
+   *
+   * @param i array index, where 0 is the bottom of the stack
+   * @return the element at that index
+   */
+  @SuppressWarnings("unchecked")
+  private T elementAt(int i) {
+
+    return (T) elements[i];
+
+  }
+
+  /**
+   * Grows the array by half its current length, or to at least one slot.
+   */
+  private void grow() {
+
+    int newLength = elements.length + (elements.length >> 1) + 1;
+
+    if (newLength < 0) {
+      newLength = Integer.MAX_VALUE - 8; // Array length overflowed
+    }
+
+    elements = Arrays.copyOf(elements, newLength);
+
+  }
+
+  /**
+   * Fail-fast iterator that reads the array from the top of the stack down.
+   */
+  private class StackIterator implements Iterator<T> {
+
+    private int next = size - 1; // Array index of the next element to return
+
+    private final int expectedModCount = modCount; // Stack version this iterator was created at
+
+    @Override
+    public boolean hasNext() {
+
+      return next >= 0;
+
+    }
+
+    @Override
+    public T next() {
+
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      if (next < 0) {
+        throw new NoSuchElementException();
+      }
+
+      return elementAt(next--);
+
+    }
+  }
+}
@@ -0,0 +1,462 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * A read-only catalog of albums stored in a compact binary file that is memory-mapped instead of
+ * loaded. Opening a catalog only checks its header, so startup does not depend on its size, and an
+ * Album with its Songs is built only when it is asked for. Albums that are never asked for cost no
+ * heap; their bytes stay in the page cache.
+ *
+ * <p>
+ * A catalog file is written by {@link #write(Path, Collection)} and laid out as follows, with all
+ * numbers big-endian ints:
+ * <ul>
+ * <li>Header: magic, version, string count, album count, track count, then the file offsets of the
+ * string index, string data, album table and track table.</li>
+ * <li>String table: every distinct string once, in UTF-8. The index holds string count + 1 offsets
+ * into the data, so string i spans offsets i to i + 1.</li>
+ * <li>Album table: per album its name, its case-folded name, its first track and its track count.
+ * Albums are sorted by folded name, so an album can be found by binary search.</li>
+ * <li>Track table: per track its name, artist, folded name and folded artist. The tracks of an
+ * album are contiguous and in the order they were added to it.</li>
+ * </ul>
+ * Names are stored as string ids. The folded forms are precomputed with the same folding as
+ * SongKey, so materialized songs get their identity keys without folding any text.
+ *
+ * <p>
+ * A catalog is safe to share between threads. Every call to {@link #album(int)} builds a new Album,
+ * which the caller owns and may empty, for example by adding it to a JukeBox.
+ *
+ * @author rishabhaggarwal
+ */
+public class Catalog {
+
+  private static final int MAGIC = 0x4A4B4331; // "JKC1", marks a catalog file
+
+  private static final int VERSION = 1; // Version of the file layout
+
+  private static final int HEADER_SIZE = 36; // Bytes in the header
+
+  private static final int ALBUM_ENTRY_SIZE = 16; // Bytes per album table entry
+
+  private static final int TRACK_ENTRY_SIZE = 16; // Bytes per track table entry
+
+  private final ByteBuffer buffer; // The mapped catalog file, read with absolute gets only
+
+  private final int stringCount; // Number of distinct strings
+
+  private final int albumCount; // Number of albums
+
+  private final int trackCount; // Number of tracks over all albums
+
+  private final int stringIndex; // Offset of the string index
+
+  private final int stringData; // Offset of the string data
+
+  private final int albumTable; // Offset of the album table
+
+  private final int trackTable; // Offset of the track table
+
+  /**
+   * Opens a catalog file by memory-mapping it. Only the header is read.
+   *
+   * @param file the catalog file
+   * @throws IllegalArgumentException if file is null
+   * @throws IOException              if the file cannot be mapped or is not a valid catalog
+   */
+  public Catalog(Path file) throws IOException {
+
+    if (file == null) {
+      throw new IllegalArgumentException();
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+      // The mapping stays valid after the channel is closed
+
+      long length = channel.size();
+
+      if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+        throw new IOException("Not a catalog: " + file);
+      }
+
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+    }
+
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("Not a catalog: " + file);
+    }
+
+    stringCount = buffer.getInt(8);
+    albumCount = buffer.getInt(12);
+    trackCount = buffer.getInt(16);
+    stringIndex = buffer.getInt(20);
+    stringData = buffer.getInt(24);
+    albumTable = buffer.getInt(28);
+    trackTable = buffer.getInt(32);
+
+    // Check the tables fit in the file, so later reads cannot run past its end
+
+    long limit = buffer.capacity();
+
+    if (stringCount < 0 || albumCount < 0 || trackCount < 0
+        || stringIndex + 4L * (stringCount + 1) > limit
+        || albumTable + (long) ALBUM_ENTRY_SIZE * albumCount > limit
+        || trackTable + (long) TRACK_ENTRY_SIZE * trackCount > limit
+        || stringData + (long) buffer.getInt(stringIndex + 4 * stringCount) > limit) {
+      throw new IOException("Corrupt catalog: " + file);
+    }
+
+  }
+
+  /**
+   * Writes the given albums to a catalog file, replacing any existing file. The albums are not
+   * changed.
+   *
+   * @param file   the catalog file to write
+   * @param albums the albums to store
+   * @throws IllegalArgumentException if file or albums is null
+   * @throws IOException              if the file cannot be written
+   */
+  public static void write(Path file, Collection<Album> albums) throws IOException {
+
+    if (file == null || albums == null) {
+      throw new IllegalArgumentException();
+    }
+
+    HashMap<String, Integer> ids = new HashMap<String, Integer>(); // String id by string
+    ArrayList<byte[]> strings = new ArrayList<byte[]>(); // UTF-8 bytes by string id
+
+    // Sort the albums by folded name, keeping the given order among equal names
+
+    Album[] sorted = albums.toArray(new Album[0]);
+    byte[][] foldedNames = new byte[sorted.length][];
+    Integer[] order = new Integer[sorted.length];
+
+    for (int i = 0; i < sorted.length; i++) {
+      foldedNames[i] = sorted[i].getName().folded().toString().getBytes(StandardCharsets.UTF_8);
+      order[i] = i;
+    }
+
+    Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(foldedNames[a], foldedNames[b]));
+
+    int[] albumEntries = new int[4 * sorted.length];
+    ArrayList<int[]> trackEntries = new ArrayList<int[]>();
+
+    for (int i = 0; i < sorted.length; i++) {
+
+      Album album = sorted[order[i]];
+
+      // The track list is LIFO, so reverse it into the order the songs were added
+
+      ArrayList<Song> tracks = new ArrayList<Song>(album.size());
+
+      for (Song song : album.tracks()) {
+        tracks.add(song);
+      }
+
+      albumEntries[4 * i] = id(album.getAlbumName(), ids, strings);
+      albumEntries[4 * i + 1] = id(album.getName().folded().toString(), ids, strings);
+      albumEntries[4 * i + 2] = trackEntries.size();
+      albumEntries[4 * i + 3] = tracks.size();
+
+      for (int t = tracks.size() - 1; t >= 0; t--) {
+
+        Song song = tracks.get(t);
+
+        trackEntries.add(new int[] {id(song.getName(), ids, strings),
+            id(song.getArtist(), ids, strings), id(SongKey.fold(song.getName()), ids, strings),
+            id(song.getArtistName().folded().toString(), ids, strings)});
+
+      }
+
+    }
+
+    // Lay out the sections one after another
+
+    long dataLength = 0;
+
+    for (byte[] bytes : strings) {
+      dataLength += bytes.length;
+    }
+
+    long stringIndex = HEADER_SIZE;
+    long stringData = stringIndex + 4L * (strings.size() + 1);
+    long albumTable = stringData + dataLength;
+    long trackTable = albumTable + (long) ALBUM_ENTRY_SIZE * sorted.length;
+    long end = trackTable + (long) TRACK_ENTRY_SIZE * trackEntries.size();
+
+    if (end > Integer.MAX_VALUE) {
+      throw new IOException("Catalog too large: " + end + " bytes");
+    }
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(file), 1 << 16))) {
+
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(strings.size());
+      out.writeInt(sorted.length);
+      out.writeInt(trackEntries.size());
+      out.writeInt((int) stringIndex);
+      out.writeInt((int) stringData);
+      out.writeInt((int) albumTable);
+      out.writeInt((int) trackTable);
+
+      int offset = 0;
+
+      for (byte[] bytes : strings) {
+        out.writeInt(offset);
+        offset += bytes.length;
+      }
+
+      out.writeInt(offset);
+
+      for (byte[] bytes : strings) {
+        out.write(bytes);
+      }
+
+      for (int entry : albumEntries) {
+        out.writeInt(entry);
+      }
+
+      for (int[] entry : trackEntries) {
+
+        for (int field : entry) {
+          out.writeInt(field);
+        }
+
+      }
+
+    }
+
+  }
+
+  /**
+   * Returns the number of albums in the catalog.
+   *
+   * @return number of albums
+   */
+  public int albumCount() {
+
+    return albumCount;
+
+  }
+
+  /**
+   * Returns the number of songs in the catalog, over all albums.
+   *
+   * @return number of songs
+   */
+  public int songCount() {
+
+    return trackCount;
+
+  }
+
+  /**
+   * Returns the name of an album without materializing it. Albums are ordered by name, ignoring
+   * case.
+   *
+   * @param index position of the album, from 0 to albumCount() - 1
+   * @return the album's name
+   * @throws IllegalArgumentException if index is out of range
+   */
+  public String albumName(int index) {
+
+    return string(albumField(index, 0));
+
+  }
+
+  /**
+   * Returns the number of songs in an album without materializing it.
+   *
+   * @param index position of the album, from 0 to albumCount() - 1
+   * @return the album's number of songs
+   * @throws IllegalArgumentException if index is out of range
+   */
+  public int albumSize(int index) {
+
+    return albumField(index, 3);
+
+  }
+
+  /**
+   * Builds a new Album holding the songs stored for the album at the given position, in the order
+   * they were added to the original album. Song identities are created from the stored folded
+   * names.
+   *
+   * @param index position of the album, from 0 to albumCount() - 1
+   * @return a new album owned by the caller
+   * @throws IllegalArgumentException if index is out of range
+   */
+  public Album album(int index) {
+
+    Album album = new Album(albumName(index));
+
+    int first = albumField(index, 2);
+    int end = first + albumField(index, 3);
+
+    for (int track = first; track < end; track++) {
+
+      int entry = trackTable + TRACK_ENTRY_SIZE * track;
+
+      Name artist = Name.of(string(buffer.getInt(entry + 4)), string(buffer.getInt(entry + 12)));
+      SongKey key = SongKey.ofFolded(string(buffer.getInt(entry + 8)), artist, album.getName());
+
+      album.addTrack(new Song(string(buffer.getInt(entry)), artist, key), key);
+
+    }
+
+    return album;
+
+  }
+
+  /**
+   * Finds the position of an album by name, ignoring case, with a binary search over the stored
+   * folded names. If several albums share the name, the first of them is found.
+   *
+   * @param albumName the name to look for
+   * @return the album's position, or -1 if there is no album with that name
+   */
+  public int indexOf(String albumName) {
+
+    if (albumName == null) {
+      return -1;
+    }
+
+    byte[] target = SongKey.fold(albumName).getBytes(StandardCharsets.UTF_8);
+
+    int low = 0;
+    int high = albumCount;
+
+    // Find the first album whose folded name is not less than the target
+
+    while (low < high) {
+
+      int mid = (low + high) >>> 1;
+
+      if (compare(albumField(mid, 1), target) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+
+    }
+
+    return low < albumCount && compare(albumField(low, 1), target) == 0 ? low : -1;
+
+  }
+
+  /**
+   * Builds a new Album for the album with the given name, ignoring case.
+   *
+   * @param albumName the name to look for
+   * @return a new album owned by the caller, or null if there is no album with that name
+   */
+  public Album findAlbum(String albumName) {
+
+    int index = indexOf(albumName);
+
+    return index >= 0 ? album(index) : null;
+
+  }
+
+  /**
+   * Reads one field of an album table entry.
+   *
+   * @param index position of the album
+   * @param field field number within the entry, from 0 to 3
+   * @return the field's value
+   * @throws IllegalArgumentException if index is out of range
+   */
+  private int albumField(int index, int field) {
+
+    if (index < 0 || index >= albumCount) {
+      throw new IllegalArgumentException();
+    }
+
+    return buffer.getInt(albumTable + ALBUM_ENTRY_SIZE * index + 4 * field);
+
+  }
+
+  /**
+   * Decodes a string from the string table.
+   *
+   * @param id the string's id
+   * @return the string
+   */
+  private String string(int id) {
+
+    int start = buffer.getInt(stringIndex + 4 * id);
+    int end = buffer.getInt(stringIndex + 4 * id + 4);
+
+    byte[] bytes = new byte[end - start];
+    buffer.get(stringData + start, bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+
+  }
+
+  /**
+   * Compares a stored string with the given UTF-8 bytes, byte by byte as unsigned values, without
+   * decoding it.
+   *
+   * @param id    the stored string's id
+   * @param bytes the bytes to compare with
+   * @return a negative number, zero or a positive number as the stored string is less than, equal
+   *         to or greater than bytes
+   */
+  private int compare(int id, byte[] bytes) {
+
+    int start = stringData + buffer.getInt(stringIndex + 4 * id);
+    int length = buffer.getInt(stringIndex + 4 * id + 4) - buffer.getInt(stringIndex + 4 * id);
+
+    for (int i = 0; i < Math.min(length, bytes.length); i++) {
+
+      int diff = Byte.toUnsignedInt(buffer.get(start + i)) - Byte.toUnsignedInt(bytes[i]);
+
+      if (diff != 0) {
+        return diff;
+      }
+
+    }
+
+    return length - bytes.length;
+
+  }
+
+  /**
+   * Returns the id of a string, adding it to the string table if it is not there yet.
+   *
+   * @param s       the string
+   * @param ids     string ids assigned so far
+   * @param strings UTF-8 bytes of the strings added so far, by id
+   * @return the string's id
+   */
+  private static int id(String s, HashMap<String, Integer> ids, ArrayList<byte[]> strings) {
+
+    Integer id = ids.get(s);
+
+    if (id == null) {
+      id = strings.size();
+      ids.put(s, id);
+      strings.add(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    return id;
+
+  }
+}
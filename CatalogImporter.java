@@ -0,0 +1,756 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports catalog dumps of songs, one row per song with its name, artist and album, and groups the
+ * rows into Albums. Two formats are read:
+ * <ul>
+ * <li>CSV: one record per line with the fields name, artist, album. Fields may be quoted with
+ * double quotes, doubling any quote inside. If the first line names the columns (name, artist and
+ * album, in any order and case), it is used to find them.</li>
+ * <li>JSON Lines: one object per line with string members "name", "artist" and "album". Other
+ * members are ignored.</li>
+ * </ul>
+ * Blank lines are skipped. A row that cannot be parsed, that breaks the rules of the Song or Album
+ * constructor, or that repeats a song already in its album, is rejected and counted instead of
+ * stopping the import. Rows whose album names are equal ignoring case go to the same album, which
+ * is named as in the first of them.
+ *
+ * <p>
+ * The import runs as a pipeline. The calling thread reads lines into batches and hands each batch
+ * to a pool of parser threads, which parse the rows, create the Songs and compute their identity
+ * keys. A single assembler thread takes the parsed batches in file order and adds the songs to
+ * their albums, so every album lists its songs in the order of their rows. At most two batches per
+ * parser are in flight, so the memory used by the pipeline does not grow with the size of the
+ * dump; only the albums being built do.
+ *
+ * @author rishabhaggarwal
+ */
+public class CatalogImporter {
+
+  private static final int BATCH_SIZE = 4096; // Lines handed to a parser at once
+
+  private final int workers; // Number of parser threads
+
+  /**
+   * Creates an importer with one parser thread per available processor.
+   */
+  public CatalogImporter() {
+
+    this(Runtime.getRuntime().availableProcessors());
+
+  }
+
+  /**
+   * Creates an importer with the given number of parser threads.
+   *
+   * @param workers number of parser threads
+   * @throws IllegalArgumentException if workers is less than 1
+   */
+  public CatalogImporter(int workers) {
+
+    if (workers < 1) {
+      throw new IllegalArgumentException();
+    }
+
+    this.workers = workers;
+
+  }
+
+  /**
+   * Imports a CSV dump. The reader is read to its end but not closed.
+   *
+   * @param in the dump to read
+   * @return the albums built and the counts of imported and rejected rows
+   * @throws IllegalArgumentException if in is null
+   * @throws IOException              if the dump cannot be read
+   * @throws InterruptedException     if interrupted while importing
+   */
+  public ImportResult importCsv(Reader in) throws IOException, InterruptedException {
+
+    return run(in, true);
+
+  }
+
+  /**
+   * Imports a JSON Lines dump. The reader is read to its end but not closed.
+   *
+   * @param in the dump to read
+   * @return the albums built and the counts of imported and rejected rows
+   * @throws IllegalArgumentException if in is null
+   * @throws IOException              if the dump cannot be read
+   * @throws InterruptedException     if interrupted while importing
+   */
+  public ImportResult importJsonLines(Reader in) throws IOException, InterruptedException {
+
+    return run(in, false);
+
+  }
+
+  /**
+   * Runs the import pipeline over a dump in either format.
+   *
+   * @param in  the dump to read
+   * @param csv true for CSV, false for JSON Lines
+   * @return the albums built and the counts of imported and rejected rows
+   * @throws IOException          if the dump cannot be read
+   * @throws InterruptedException if interrupted while importing
+   */
+  private ImportResult run(Reader in, boolean csv) throws IOException, InterruptedException {
+
+    if (in == null) {
+      throw new IllegalArgumentException();
+    }
+
+    BufferedReader reader = new BufferedReader(in, 1 << 16);
+
+    // Parsed batches in file order; a null batch marks the end of the dump
+
+    BlockingQueue<Future<ParsedBatch>> pipeline = new ArrayBlockingQueue<>(2 * workers);
+
+    ExecutorService parsers = Executors.newFixedThreadPool(workers, daemon("catalog-parser"));
+    ExecutorService assembler = Executors.newSingleThreadExecutor(daemon("catalog-assembler"));
+
+    try {
+
+      Future<ImportResult> result = assembler.submit(() -> assemble(pipeline));
+
+      String line = reader.readLine();
+      int[] columns = {0, 1, 2}; // Positions of the name, artist and album fields
+
+      if (csv && line != null) {
+
+        int[] header = headerColumns(parseCsv(line));
+
+        if (header != null) {
+          columns = header;
+          line = reader.readLine();
+        }
+
+      }
+
+      int[] fields = columns;
+      ArrayList<String> batch = new ArrayList<String>(BATCH_SIZE);
+
+      while (line != null) {
+
+        batch.add(line);
+
+        if (batch.size() == BATCH_SIZE) {
+
+          ArrayList<String> lines = batch;
+          submit(pipeline, parsers.submit(() -> parse(lines, csv, fields)), result);
+          batch = new ArrayList<String>(BATCH_SIZE);
+
+        }
+
+        line = reader.readLine();
+
+      }
+
+      if (!batch.isEmpty()) {
+        ArrayList<String> lines = batch;
+        submit(pipeline, parsers.submit(() -> parse(lines, csv, fields)), result);
+      }
+
+      submit(pipeline, CompletableFuture.completedFuture(null), result);
+
+      return result.get();
+
+    } catch (ExecutionException e) {
+
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+
+      throw new IllegalStateException(e.getCause());
+
+    } finally {
+
+      parsers.shutdownNow();
+      assembler.shutdownNow();
+
+    }
+
+  }
+
+  /**
+   * Hands a parsed batch to the assembler, waiting while the pipeline is full. Stops waiting if the
+   * assembler has failed.
+   *
+   * @param pipeline the queue of parsed batches
+   * @param batch    the batch to hand over
+   * @param result   the assembler's result
+   * @throws ExecutionException   if the assembler failed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  private static void submit(BlockingQueue<Future<ParsedBatch>> pipeline, Future<ParsedBatch> batch,
+      Future<ImportResult> result) throws ExecutionException, InterruptedException {
+
+    while (!pipeline.offer(batch, 10, TimeUnit.MILLISECONDS)) {
+
+      if (result.isDone()) {
+        result.get();
+      }
+
+    }
+
+  }
+
+  /**
+   * Adds the songs of each parsed batch to their albums, taking the batches in file order.
+   *
+   * @param pipeline the queue of parsed batches, ended by a null batch
+   * @return the albums built and the counts of imported and rejected rows
+   * @throws ExecutionException   if a parser failed
+   * @throws InterruptedException if interrupted while waiting for a batch
+   */
+  private static ImportResult assemble(BlockingQueue<Future<ParsedBatch>> pipeline)
+      throws ExecutionException, InterruptedException {
+
+    LinkedHashMap<Name, Album> albums = new LinkedHashMap<Name, Album>(); // By folded name
+    long imported = 0;
+    long rejected = 0;
+
+    for (ParsedBatch batch = pipeline.take().get(); batch != null; batch = pipeline.take().get()) {
+
+      rejected += batch.rejected;
+
+      for (int i = 0; i < batch.count; i++) {
+
+        Album album = albums.get(batch.foldedAlbums[i]);
+
+        try {
+
+          if (album == null) {
+            album = new Album(batch.albumNames[i]);
+            albums.put(batch.foldedAlbums[i], album);
+          }
+
+          album.addSong(batch.songs[i], batch.keys[i]);
+          imported++;
+
+        } catch (IllegalArgumentException e) {
+          rejected++;
+        }
+
+      }
+
+    }
+
+    return new ImportResult(new ArrayList<Album>(albums.values()), imported, rejected);
+
+  }
+
+  /**
+   * Parses a batch of lines into songs, on a parser thread.
+   *
+   * @param lines   the lines to parse
+   * @param csv     true for CSV, false for JSON Lines
+   * @param columns positions of the name, artist and album fields in a CSV record
+   * @return the parsed rows and the number of rows rejected
+   */
+  private static ParsedBatch parse(ArrayList<String> lines, boolean csv, int[] columns) {
+
+    ParsedBatch batch = new ParsedBatch(lines.size());
+
+    for (String line : lines) {
+
+      if (line.isBlank()) {
+        continue;
+      }
+
+      String[] row = csv ? csvRow(parseCsv(line), columns) : parseJson(line);
+
+      if (row == null || row[2] == null) {
+        batch.rejected++;
+        continue;
+      }
+
+      // Apply the same validation as for hand-built songs, then create the song with the identity
+      // it will have in its album, so the album rejects a repeated row as a duplicate
+
+      try {
+        Song.validate(row[0], row[1]);
+      } catch (IllegalArgumentException e) {
+        batch.rejected++;
+        continue;
+      }
+
+      Name artist = Name.of(row[1]);
+      Name album = Name.of(row[2]);
+      SongKey key = SongKey.ofFolded(SongKey.fold(row[0]), artist, album);
+
+      batch.songs[batch.count] = new Song(row[0], artist, key);
+      batch.keys[batch.count] = key;
+      batch.albumNames[batch.count] = row[2];
+      batch.foldedAlbums[batch.count] = album.folded();
+      batch.count++;
+
+    }
+
+    return batch;
+
+  }
+
+  /**
+   * Finds the name, artist and album columns in a CSV header.
+   *
+   * @param fields the fields of the first line, or null if it could not be parsed
+   * @return positions of the name, artist and album fields, or null if the line is not a header
+   */
+  private static int[] headerColumns(String[] fields) {
+
+    if (fields == null) {
+      return null;
+    }
+
+    int[] columns = {-1, -1, -1};
+    String[] names = {"name", "artist", "album"};
+
+    for (int i = 0; i < fields.length; i++) {
+
+      for (int c = 0; c < names.length; c++) {
+
+        if (fields[i].trim().equalsIgnoreCase(names[c]) && columns[c] < 0) {
+          columns[c] = i;
+        }
+
+      }
+
+    }
+
+    return columns[0] >= 0 && columns[1] >= 0 && columns[2] >= 0 ? columns : null;
+
+  }
+
+  /**
+   * Picks the name, artist and album out of the fields of a CSV record.
+   *
+   * @param fields  the record's fields, or null if it could not be parsed
+   * @param columns positions of the name, artist and album fields
+   * @return the name, artist and album, or null if the record is too short
+   */
+  private static String[] csvRow(String[] fields, int[] columns) {
+
+    if (fields == null) {
+      return null;
+    }
+
+    String[] row = new String[3];
+
+    for (int c = 0; c < 3; c++) {
+
+      if (columns[c] >= fields.length) {
+        return null;
+      }
+
+      row[c] = fields[columns[c]];
+
+    }
+
+    return row;
+
+  }
+
+  /**
+   * Splits a CSV record into its fields. Quoted fields may contain commas and doubled quotes.
+   *
+   * @param line the record
+   * @return the fields, or null if a quoted field is not closed or is followed by more text
+   */
+  private static String[] parseCsv(String line) {
+
+    ArrayList<String> fields = new ArrayList<String>(4);
+    int i = 0;
+
+    while (true) {
+
+      if (i < line.length() && line.charAt(i) == '"') {
+
+        // Quoted field: runs to the next quote that is not doubled
+
+        StringBuilder field = new StringBuilder();
+        i++;
+
+        while (true) {
+
+          int quote = line.indexOf('"', i);
+
+          if (quote < 0) {
+            return null;
+          }
+
+          field.append(line, i, quote);
+          i = quote + 1;
+
+          if (i < line.length() && line.charAt(i) == '"') {
+            field.append('"');
+            i++;
+          } else {
+            break;
+          }
+
+        }
+
+        fields.add(field.toString());
+
+        if (i < line.length() && line.charAt(i) != ',') {
+          return null;
+        }
+
+      } else {
+
+        int comma = line.indexOf(',', i);
+        int end = comma < 0 ? line.length() : comma;
+
+        fields.add(line.substring(i, end));
+        i = end;
+
+      }
+
+      if (i >= line.length()) {
+        return fields.toArray(new String[0]);
+      }
+
+      i++; // Skip the comma
+
+    }
+
+  }
+
+  /**
+   * Reads the "name", "artist" and "album" members of a JSON object.
+   *
+   * @param line the object
+   * @return the name, artist and album, each null if missing or null, or null if the line is not
+   *         a valid JSON object or one of those members is not a string or null
+   */
+  private static String[] parseJson(String line) {
+
+    JsonCursor json = new JsonCursor(line);
+    String[] row = new String[3];
+
+    try {
+
+      json.expect('{');
+
+      if (!json.consume('}')) {
+
+        do {
+
+          String key = json.string();
+          json.expect(':');
+
+          int c = "name".equals(key) ? 0 : "artist".equals(key) ? 1 : "album".equals(key) ? 2 : -1;
+
+          if (c < 0) {
+            json.skipValue();
+          } else if (json.consume("null")) {
+            row[c] = null;
+          } else {
+            row[c] = json.string();
+          }
+
+        } while (json.consume(','));
+
+        json.expect('}');
+
+      }
+
+      json.expectEnd();
+
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+
+    return row;
+
+  }
+
+  /**
+   * Returns a thread factory for daemon threads with the given name, so a failed import cannot keep
+   * the JVM alive.
+   *
+   * @param name name of the threads
+   * @return the thread factory
+   */
+  private static ThreadFactory daemon(String name) {
+
+    return task -> {
+      Thread thread = new Thread(task, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+
+  }
+
+  /**
+   * The rows of one batch that were parsed into songs, in file order.
+   */
+  private static class ParsedBatch {
+
+    private final Song[] songs; // Parsed songs, not yet added to their album
+
+    private final SongKey[] keys; // Identity of each song in its album
+
+    private final String[] albumNames; // Album name of each song, as written
+
+    private final Name[] foldedAlbums; // Folded album name of each song, shared by equal names
+
+    private int count; // Number of parsed rows
+
+    private int rejected; // Number of rows that could not be parsed or validated
+
+    /**
+     * Creates an empty batch with room for the given number of rows.
+     *
+     * @param capacity maximum number of rows
+     */
+    private ParsedBatch(int capacity) {
+
+      songs = new Song[capacity];
+      keys = new SongKey[capacity];
+      albumNames = new String[capacity];
+      foldedAlbums = new Name[capacity];
+
+    }
+  }
+
+  /**
+   * A minimal reader for one line of JSON. Every method throws IllegalArgumentException when the
+   * text does not match.
+   */
+  private static class JsonCursor {
+
+    private final String text; // The line being read
+
+    private int pos; // Index of the next character to read
+
+    /**
+     * Creates a cursor at the start of the text.
+     *
+     * @param text the line to read
+     */
+    private JsonCursor(String text) {
+
+      this.text = text;
+
+    }
+
+    /**
+     * Skips whitespace, then reads the given character.
+     *
+     * @param c the expected character
+     */
+    private void expect(char c) {
+
+      if (!consume(c)) {
+        throw new IllegalArgumentException();
+      }
+
+    }
+
+    /**
+     * Skips whitespace, then reads the given character if it is next.
+     *
+     * @param c the character to look for
+     * @return true if it was read
+     */
+    private boolean consume(char c) {
+
+      skipWhitespace();
+
+      if (pos < text.length() && text.charAt(pos) == c) {
+        pos++;
+        return true;
+      }
+
+      return false;
+
+    }
+
+    /**
+     * Skips whitespace, then reads the given literal if it is next.
+     *
+     * @param literal the literal to look for, such as null
+     * @return true if it was read
+     */
+    private boolean consume(String literal) {
+
+      skipWhitespace();
+
+      if (text.startsWith(literal, pos)) {
+        pos += literal.length();
+        return true;
+      }
+
+      return false;
+
+    }
+
+    /**
+     * Checks that only whitespace is left.
+     */
+    private void expectEnd() {
+
+      skipWhitespace();
+
+      if (pos != text.length()) {
+        throw new IllegalArgumentException();
+      }
+
+    }
+
+    /**
+     * Skips whitespace, then reads a string, decoding its escapes.
+     *
+     * @return the string's value
+     */
+    private String string() {
+
+      expect('"');
+
+      StringBuilder sb = new StringBuilder();
+
+      while (pos < text.length()) {
+
+        char c = text.charAt(pos++);
+
+        if (c == '"') {
+          return sb.toString();
+        }
+
+        if (c != '\\') {
+          sb.append(c);
+          continue;
+        }
+
+        if (pos >= text.length()) {
+          break;
+        }
+
+        char escape = text.charAt(pos++);
+
+        switch (escape) {
+          case '"':
+          case '\\':
+          case '/':
+            sb.append(escape);
+            break;
+          case 'b':
+            sb.append('\b');
+            break;
+          case 'f':
+            sb.append('\f');
+            break;
+          case 'n':
+            sb.append('\n');
+            break;
+          case 'r':
+            sb.append('\r');
+            break;
+          case 't':
+            sb.append('\t');
+            break;
+          case 'u':
+
+            if (pos + 4 > text.length()) {
+              throw new IllegalArgumentException();
+            }
+
+            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+            pos += 4;
+            break;
+
+          default:
+            throw new IllegalArgumentException();
+        }
+
+      }
+
+      throw new IllegalArgumentException();
+
+    }
+
+    /**
+     * Skips whitespace, then skips over one value of any type.
+     */
+    private void skipValue() {
+
+      skipWhitespace();
+
+      if (pos >= text.length()) {
+        throw new IllegalArgumentException();
+      }
+
+      char c = text.charAt(pos);
+
+      if (c == '"') {
+        string();
+      } else if (c == '{' || c == '[') {
+
+        // Skip the nested object or array, and any strings inside it
+
+        char close = c == '{' ? '}' : ']';
+        pos++;
+
+        if (consume(close)) {
+          return;
+        }
+
+        do {
+
+          if (close == '}') {
+            string();
+            expect(':');
+          }
+
+          skipValue();
+
+        } while (consume(','));
+
+        expect(close);
+
+      } else {
+
+        // Number, true, false or null
+
+        int start = pos;
+
+        while (pos < text.length() && "+-.0123456789Eaeflnrstu".indexOf(text.charAt(pos)) >= 0) {
+          pos++;
+        }
+
+        if (pos == start) {
+          throw new IllegalArgumentException();
+        }
+
+      }
+
+    }
+
+    /**
+     * Moves past any spaces, tabs and line breaks.
+     */
+    private void skipWhitespace() {
+
+      while (pos < text.length() && " \t\r\n".indexOf(text.charAt(pos)) >= 0) {
+        pos++;
+      }
+
+    }
+  }
+}
@@ -0,0 +1,249 @@
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A thread-safe jukebox for many request threads adding songs while a playback thread plays them.
+ * The identities of the songs are kept in a lock-free FIFO queue, duplicates are rejected through
+ * a concurrent map from each identity to its song, and capacity is enforced by reserving a slot
+ * with a compare-and-set on a counter, so producers never serialize on a shared lock.
+ *
+ * <p>
+ * The slot counter is the single source of truth for {@link #size()}, {@link #isEmpty()} and
+ * {@link #isFull()}: a song counts as queued from the moment its slot is reserved until
+ * {@link #playSong()} releases it. A song is queued under the identity it has when it is added,
+ * so moving it to another album while it waits does not disturb the queue. Shuffling is not
+ * supported, since reordering a queue that other threads are appending to has no meaningful
+ * result.
+ *
+ * @author rishabhaggarwal
+ */
+public class ConcurrentJukeBox {
+
+  private static final int SPINS = 128; // Times playSong spins for a reserved song before parking
+
+  private static final long PARK_NANOS = 50_000; // How long playSong parks between later checks
+
+  private final int capacity; // Maximum number of songs allowed
+
+  private final ConcurrentLinkedQueue<SongKey> songQueue; // Lock-free queue of songs for playback
+
+  private final ConcurrentHashMap<SongKey, Song> queuedSongs; // Queued songs by their identity
+
+  private final AtomicInteger reserved; // Slots taken by queued songs and in-flight additions
+
+  /**
+   * Creates a new ConcurrentJukeBox with specified capacity.
+   *
+   * @param capacity maximum number of songs allowed
+   * @throws IllegalArgumentException if capacity is negative
+   */
+  public ConcurrentJukeBox(int capacity) {
+
+    if (capacity < 0) {
+      throw new IllegalArgumentException();
+    }
+
+    this.capacity = capacity;
+    this.songQueue = new ConcurrentLinkedQueue<SongKey>();
+    this.queuedSongs = new ConcurrentHashMap<SongKey, Song>();
+    this.reserved = new AtomicInteger();
+
+  }
+
+  /**
+   * Adds songs from an album to the queue until full or album is empty, preserving the album's
+   * original order, like JukeBox.addAlbumToQueue: unless the jukebox is already full, every song
+   * is taken from the album and they are queued oldest first, skipping duplicates, until no slot is
+   * left. The album itself is not thread-safe and must not be shared while this runs.
+   *
+   * @param album the album containing songs to add
+   */
+  public void addAlbumToQueue(Album album) {
+
+    if (isFull()) {
+      return;
+    }
+
+    // Temporary stack to reverse order of songs
+
+    LinkedStack<Song> tempStack = new LinkedStack<>();
+
+    while (album.size() > 0) {
+      tempStack.push(album.removeSong());
+    }
+
+    // Add songs to queue in correct order, skipping duplicates and songs that no longer fit
+
+    while (!tempStack.isEmpty()) {
+
+      try {
+
+        addSongToQueue(tempStack.pop());
+
+      } catch (IllegalStateException | IllegalArgumentException e) {
+        continue;
+      }
+
+    }
+
+  }
+
+  /**
+   * Adds a single song to the queue if space allows and song isn't duplicate. Safe to call from any
+   * number of threads at once.
+   *
+   * @param song the song to add
+   * @throws IllegalStateException    if queue is full
+   * @throws IllegalArgumentException if song already in queue
+   */
+  public void addSongToQueue(Song song) {
+
+    // Claim the song's identity first, so a duplicate is turned away without ever holding a slot
+
+    SongKey key = song.getKey();
+
+    if (queuedSongs.putIfAbsent(key, song) != null) {
+      throw new IllegalArgumentException();
+    }
+
+    // Reserve a slot, so concurrent producers can never overshoot the capacity, and give the
+    // identity back if there is none left
+
+    int taken;
+
+    do {
+
+      taken = reserved.get();
+
+      if (taken >= capacity) {
+        queuedSongs.remove(key, song);
+        throw new IllegalStateException();
+      }
+
+    } while (!reserved.compareAndSet(taken, taken + 1));
+
+    songQueue.offer(key);
+
+  }
+
+  /**
+   * Returns the maximum capacity of the jukebox.
+   *
+   * @return maximum number of songs allowed
+   */
+  public int capacity() {
+
+    return this.capacity;
+
+  }
+
+  /**
+   * Checks if queue is empty.
+   *
+   * @return true if no songs in queue
+   */
+  public boolean isEmpty() {
+
+    return reserved.get() == 0;
+
+  }
+
+  /**
+   * Checks if queue is at capacity.
+   *
+   * @return true if number of songs equals capacity
+   */
+  public boolean isFull() {
+
+    return reserved.get() >= this.capacity;
+
+  }
+
+  /**
+   * Removes and returns the next song in queue for playback. If a producer has reserved a slot but
+   * not yet linked its song into the queue, this waits for it rather than reporting an empty
+   * jukebox: it spins for a short while, then parks for short intervals, so a producer that is
+   * descheduled between the two steps does not keep a core busy.
+   *
+   * @return the next song to play
+   * @throws NoSuchElementException if queue is empty
+   */
+  public Song playSong() {
+
+    int spins = 0;
+
+    while (true) {
+
+      SongKey key = songQueue.poll();
+
+      if (key != null) {
+
+        // Forget the song before releasing its slot, so it can be requested again
+
+        Song song = queuedSongs.remove(key);
+        reserved.decrementAndGet();
+
+        return song;
+
+      }
+
+      if (reserved.get() == 0) {
+        throw new NoSuchElementException();
+      }
+
+      // The song is one offer away, so spin first; park once the producer seems to be stalled
+
+      if (spins < SPINS) {
+        spins++;
+        Thread.onSpinWait();
+      } else {
+        LockSupport.parkNanos(PARK_NANOS);
+      }
+
+    }
+
+  }
+
+  /**
+   * Returns current number of songs in queue.
+   *
+   * @return number of songs in queue
+   */
+  public int size() {
+
+    return reserved.get();
+
+  }
+
+  /**
+   * Returns string representation of queue. Format: Song1 -> Song2 -> ... -> END. The queue is
+   * read without locking, so songs added or played meanwhile may or may not appear.
+   *
+   * @return formatted string of queue contents
+   */
+  public String toString() {
+
+    StringBuilder sb = new StringBuilder();
+
+    for (SongKey key : songQueue) {
+
+      Song song = queuedSongs.get(key);
+
+      // Skip a song that was played after the walk reached it
+
+      if (song != null) {
+        sb.append(song.toString());
+        sb.append(" -> ");
+      }
+
+    }
+
+    sb.append("END");
+
+    return sb.toString();
+
+  }
+}
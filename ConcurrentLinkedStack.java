@@ -0,0 +1,234 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free stack (Treiber stack) that any number of threads can push to and pop from at once.
+ * The top of the stack is swapped with compare-and-set instead of being guarded by a lock.
+ *
+ * <p>
+ * Pop is safe from the ABA problem because every push links a freshly allocated node and nodes are
+ * never reused: a node that is still referenced by a thread about to compare-and-set cannot be
+ * recycled and pushed again, so a successful compare-and-set always sees the stack it read.
+ * Iteration is weakly consistent: it walks the stack as it was when the iterator was created, never
+ * throws ConcurrentModificationException, and may or may not see later changes.
+ *
+ * @param <T> the type of elements stored in the stack
+ * @author rishabhaggarwal
+ */
+public class ConcurrentLinkedStack<T> implements StackADT<T> {
+
+  private final AtomicReference<LinkedNode<T>> top; // Reference to the top node of the stack
+
+  private final AtomicInteger size; // Number of elements, exact whenever no push or pop is running
+
+  /**
+   * Creates an empty stack.
+   */
+  public ConcurrentLinkedStack() {
+
+    top = new AtomicReference<LinkedNode<T>>();
+    size = new AtomicInteger();
+
+  }
+
+  /**
+   * Adds a new element to the top of the stack, retrying if another thread changed the top first.
+   *
+   * @param value the element to be added to the stack
+   */
+  @Override
+  public void push(T value) {
+
+    LinkedNode<T> newNode = new LinkedNode<T>(value);
+    LinkedNode<T> current;
+
+    // The node is not visible to other threads until the compare-and-set publishes it
+
+    do {
+
+      current = top.get();
+      newNode.setNext(current);
+
+    } while (!top.compareAndSet(current, newNode));
+
+    size.incrementAndGet();
+
+  }
+
+  /**
+   * Removes and returns the element at the top of the stack, retrying if another thread changed
+   * the top first.
+   *
+   * @return the most recently added element, or null if stack is empty
+   */
+  @Override
+  public T pop() {
+
+    LinkedNode<T> current;
+
+    do {
+
+      current = top.get();
+
+      if (current == null) {
+        return null;
+      }
+
+    } while (!top.compareAndSet(current, current.getNext()));
+
+    size.decrementAndGet();
+
+    return current.getData();
+
+  }
+
+  /**
+   * Returns the element at the top of the stack without removing it.
+   *
+   * @return the most recently added element, or null if stack is empty
+   */
+  @Override
+  public T peek() {
+
+    LinkedNode<T> current = top.get();
+
+    return current != null ? current.getData() : null;
+
+  }
+
+  /**
+   * Checks if the stack is empty.
+   *
+   * @return true if stack contains no elements, false otherwise
+   */
+  @Override
+  public boolean isEmpty() {
+
+    return top.get() == null;
+
+  }
+
+  /**
+   * Returns the number of elements in the stack. While pushes or pops are in progress the count
+   * may briefly lag behind the stack itself.
+   *
+   * @return current size of stack
+   */
+  @Override
+  public int size() {
+
+    return Math.max(0, size.get());
+
+  }
+
+  /**
+   * Checks if a specific element exists in the stack, as of the moment the search starts.
+   *
+   * @param value the element to search for
+   * @return true if element is found in stack, false otherwise
+   */
+  @Override
+  public boolean contains(T value) {
+
+    for (T element : this) {
+
+      if (element.equals(value)) {
+        return true;
+      }
+
+    }
+
+    return false;
+
+  }
+
+  /**
+   * Creates an ArrayList containing all elements in the stack, as of the moment the copy starts.
+   * Elements are ordered from top to bottom.
+   *
+   * @return ArrayList containing stack elements in LIFO order
+   */
+  @Override
+  public ArrayList<T> getList() {
+
+    ArrayList<T> list = new ArrayList<T>();
+
+    for (T element : this) {
+      list.add(element);
+    }
+
+    return list;
+
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the stack from top to bottom.
+   *
+   * @return iterator over the stacked elements in LIFO order
+   */
+  @Override
+  public Iterator<T> iterator() {
+
+    return new StackIterator(top.get());
+
+  }
+
+  /**
+   * Returns a weakly consistent spliterator over the stack from top to bottom.
+   *
+   * @return spliterator over the stacked elements in LIFO order
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+
+    return Spliterators.spliteratorUnknownSize(iterator(),
+        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.CONCURRENT);
+
+  }
+
+  /**
+   * Iterator that follows the node links from a snapshot of the top. Nodes are never modified
+   * after they are published, so the walk is unaffected by concurrent pushes and pops.
+   */
+  private class StackIterator implements Iterator<T> {
+
+    private LinkedNode<T> next; // Node holding the next element to return
+
+    /**
+     * Creates an iterator starting at the given node.
+     *
+     * @param top the top node when the iterator was created
+     */
+    private StackIterator(LinkedNode<T> top) {
+
+      this.next = top;
+
+    }
+
+    @Override
+    public boolean hasNext() {
+
+      return next != null;
+
+    }
+
+    @Override
+    public T next() {
+
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+
+      T data = next.getData();
+      next = next.getNext();
+
+      return data;
+
+    }
+  }
+}
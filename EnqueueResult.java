@@ -0,0 +1,63 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of adding a batch of songs to a jukebox: which songs were queued, and which were
+ * turned away because they were already queued, repeated within the batch, played too recently, or
+ * did not fit.
+ *
+ * @author rishabhaggarwal
+ */
+public class EnqueueResult {
+
+  private final List<Song> accepted; // Songs added to the queue, in queue order
+
+  private final List<Song> rejected; // Songs that were not added, in batch order
+
+  /**
+   * Creates a result from the accepted and rejected songs of a batch.
+   *
+   * @param accepted songs added to the queue
+   * @param rejected songs that were not added
+   */
+  public EnqueueResult(List<Song> accepted, List<Song> rejected) {
+
+    this.accepted = Collections.unmodifiableList(accepted);
+    this.rejected = Collections.unmodifiableList(rejected);
+
+  }
+
+  /**
+   * Returns the songs that were added to the queue, in the order they were queued.
+   *
+   * @return unmodifiable list of accepted songs
+   */
+  public List<Song> getAccepted() {
+
+    return accepted;
+
+  }
+
+  /**
+   * Returns the songs that were not added, in the order they appeared in the batch.
+   *
+   * @return unmodifiable list of rejected songs
+   */
+  public List<Song> getRejected() {
+
+    return rejected;
+
+  }
+
+  /**
+   * Returns a summary of the batch. Format: accepted=N, rejected=M
+   *
+   * @return counts of accepted and rejected songs
+   */
+  @Override
+  public String toString() {
+
+    return "accepted=" + accepted.size() + ", rejected=" + rejected.size();
+
+  }
+}
@@ -0,0 +1,508 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.random.RandomGenerator;
+
+/**
+ * A fair-share queue, implementing the QueueADT interface. Every element is queued on behalf of a
+ * submitter, each submitter has its own FIFO sub-queue, and dequeue takes one element from each
+ * submitter with elements waiting in turn (round robin), so a submitter who queues a whole album
+ * cannot starve the others. Submitters with waiting elements form a circular list, so enqueue and
+ * dequeue are O(1) however many submitters there are, and a submitter whose sub-queue empties
+ * leaves the list and takes no memory.
+ *
+ * <p>
+ * A submitter with nothing queued joins the rotation last, after every submitter already waiting.
+ * Elements queued with enqueue(value) belong to the default submitter, which takes turns like any
+ * other; its name is empty, so no real submitter can be mistaken for it. An element can be queued
+ * at most once at a time, as decided by equals and hashCode: enqueueing an element equal to a
+ * queued one throws IllegalArgumentException. A song is indexed under the identity it has when it
+ * is queued, and the queued object itself is found by reference, so a song moved to another album
+ * while it waits can still be looked up and removed. Iteration visits the elements in the order
+ * they would be dequeued.
+ *
+ * @param <T> the type of elements stored in the queue
+ * @author rishabhaggarwal
+ */
+public class FairShareQueue<T> implements QueueADT<T> {
+
+  public static final String DEFAULT_SUBMITTER = ""; // Submitter of elements added with enqueue
+
+  private final HashMap<String, Lane<T>> lanes; // Sub-queue of each submitter with elements queued
+
+  private final HashMap<Object, Lane<T>> owners; // Sub-queue of each element, by key when queued
+
+  private final IdentityHashMap<T, Object> keys; // Key each queued element object is indexed under
+
+  private Lane<T> current; // Sub-queue whose turn is next, or null if the queue is empty
+
+  private int size; // Number of elements in queue
+
+  private int modCount; // Number of structural changes, used by iterators to fail fast
+
+  /**
+   * Creates an empty queue.
+   */
+  public FairShareQueue() {
+
+    lanes = new HashMap<String, Lane<T>>();
+    owners = new HashMap<Object, Lane<T>>();
+    keys = new IdentityHashMap<T, Object>();
+
+  }
+
+  /**
+   * Adds a new element to the back of the default submitter's sub-queue.
+   *
+   * @param value the element to be added to the queue
+   * @throws IllegalArgumentException if an equal element is already queued
+   */
+  @Override
+  public void enqueue(T value) {
+
+    add(value, DEFAULT_SUBMITTER);
+
+  }
+
+  /**
+   * Adds a new element to the back of the given submitter's sub-queue.
+   *
+   * @param value     the element to be added to the queue
+   * @param submitter the submitter the element is queued for
+   * @throws IllegalArgumentException if submitter is null or empty, or an equal element is already
+   *                                  queued
+   */
+  public void enqueue(T value, String submitter) {
+
+    if (submitter == null || submitter.isEmpty()) {
+      throw new IllegalArgumentException();
+    }
+
+    add(value, submitter);
+
+  }
+
+  /**
+   * Adds all of the given elements to the back of the default submitter's sub-queue, in iteration
+   * order.
+   *
+   * @param values the elements to be added to the queue
+   * @throws IllegalArgumentException if an element is already queued
+   */
+  @Override
+  public void enqueueAll(Collection<? extends T> values) {
+
+    for (T value : values) {
+      add(value, DEFAULT_SUBMITTER);
+    }
+
+  }
+
+  /**
+   * Adds all of the given elements to the back of the given submitter's sub-queue, in iteration
+   * order.
+   *
+   * @param values    the elements to be added to the queue
+   * @param submitter the submitter the elements are queued for
+   * @throws IllegalArgumentException if submitter is null or empty, or an element is already queued
+   */
+  public void enqueueAll(Collection<? extends T> values, String submitter) {
+
+    for (T value : values) {
+      enqueue(value, submitter);
+    }
+
+  }
+
+  /**
+   * Adds a new element to the back of a submitter's sub-queue, creating the sub-queue if the
+   * submitter has nothing queued.
+   *
+   * @param value     the element to be added to the queue
+   * @param submitter the submitter the element is queued for
+   * @throws IllegalArgumentException if an equal element is already queued
+   */
+  private void add(T value, String submitter) {
+
+    Object key = Song.keyOf(value);
+
+    if (owners.containsKey(key) || keys.containsKey(value)) {
+      throw new IllegalArgumentException();
+    }
+
+    Lane<T> lane = lanes.get(submitter);
+
+    if (lane == null) {
+      lane = new Lane<T>(submitter);
+      lanes.put(submitter, lane);
+      join(lane);
+    }
+
+    lane.queue.enqueue(value);
+    owners.put(key, lane);
+    keys.put(value, key);
+    size++;
+    modCount++;
+
+  }
+
+  /**
+   * Removes and returns the element at the front of the sub-queue whose turn it is, and passes the
+   * turn to the next submitter.
+   *
+   * @return the first element in queue, or null if empty
+   */
+  @Override
+  public T dequeue() {
+
+    if (this.isEmpty()) {
+      return null;
+    }
+
+    Lane<T> lane = current;
+    T value = lane.queue.dequeue();
+
+    owners.remove(keys.remove(value));
+    size--;
+    modCount++;
+
+    if (lane.queue.isEmpty()) {
+      leave(lane);
+      lanes.remove(lane.submitter);
+    } else {
+      current = lane.next;
+    }
+
+    return value;
+
+  }
+
+  /**
+   * Returns the element at the front of the queue without removing it.
+   *
+   * @return the first element in queue, or null if empty
+   */
+  @Override
+  public T peek() {
+
+    return isEmpty() ? null : current.queue.peek();
+
+  }
+
+  /**
+   * Returns the submitter a queued element was queued for.
+   *
+   * @param value the queued element
+   * @return the element's submitter
+   * @throws NoSuchElementException if the element is not in the queue
+   */
+  public String getSubmitter(T value) {
+
+    Lane<T> lane = owner(value);
+
+    if (lane == null) {
+      throw new NoSuchElementException();
+    }
+
+    return lane.submitter;
+
+  }
+
+  /**
+   * Returns the number of submitters with elements queued.
+   *
+   * @return number of active submitters
+   */
+  public int submitters() {
+
+    return lanes.size();
+
+  }
+
+  /**
+   * Checks if the queue is empty.
+   *
+   * @return true if queue contains no elements
+   */
+  @Override
+  public boolean isEmpty() {
+
+    return size == 0;
+
+  }
+
+  /**
+   * Returns the number of elements in the queue.
+   *
+   * @return current size of queue
+   */
+  @Override
+  public int size() {
+
+    return this.size;
+
+  }
+
+  /**
+   * Removes all elements from the queue.
+   */
+  @Override
+  public void clear() {
+
+    lanes.clear();
+    owners.clear();
+    keys.clear();
+    current = null;
+    size = 0;
+    modCount++;
+
+  }
+
+  /**
+   * Checks if a specific element exists in the queue, in constant time.
+   *
+   * @param value element to search for
+   * @return true if element is found
+   */
+  @Override
+  public boolean contains(T value) {
+
+    return owner(value) != null;
+
+  }
+
+  /**
+   * Creates an ArrayList containing all elements in the queue, in the order they would be
+   * dequeued.
+   *
+   * @return ArrayList containing queue elements from front to back
+   */
+  @Override
+  public ArrayList<T> getList() {
+
+    ArrayList<T> list = new ArrayList<T>(size);
+
+    for (T element : this) {
+      list.add(element);
+    }
+
+    return list;
+
+  }
+
+  /**
+   * Randomly reorders each submitter's sub-queue, and the order in which submitters take turns,
+   * with Fisher-Yates shuffles. Every submitter keeps its fair share.
+   *
+   * @param random the source of randomness
+   */
+  @Override
+  public void shuffle(RandomGenerator random) {
+
+    if (isEmpty()) {
+      return;
+    }
+
+    // Collect the rotation from the submitter whose turn is next, shuffling each sub-queue
+
+    ArrayList<Lane<T>> rotation = new ArrayList<Lane<T>>(lanes.size());
+    Lane<T> lane = current;
+
+    do {
+      lane.queue.shuffle(random);
+      rotation.add(lane);
+      lane = lane.next;
+    } while (lane != current);
+
+    for (int i = rotation.size() - 1; i > 0; i--) {
+
+      int j = random.nextInt(i + 1);
+      Lane<T> swap = rotation.get(i);
+      rotation.set(i, rotation.get(j));
+      rotation.set(j, swap);
+
+    }
+
+    current = null;
+
+    for (Lane<T> shuffled : rotation) {
+      join(shuffled);
+    }
+
+    modCount++;
+
+  }
+
+  /**
+   * Returns an iterator over the queue in the order the elements would be dequeued: the first
+   * element of each sub-queue in turn, then the second of each, and so on. The iterator throws
+   * ConcurrentModificationException if the queue is modified while iterating.
+   *
+   * @return iterator over the queued elements from front to back
+   */
+  @Override
+  public Iterator<T> iterator() {
+
+    return new QueueIterator();
+
+  }
+
+  /**
+   * Returns a spliterator over the queue from front to back that reports the queue's size.
+   *
+   * @return spliterator over the queued elements from front to back
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+
+    return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+
+  }
+
+  /**
+   * Finds the sub-queue of a queued element: the one the element itself is in if it is queued, or
+   * else the one holding the element queued under the element's key.
+   *
+   * @param value the element to look up
+   * @return the element's sub-queue, or null if it is not in the queue
+   */
+  private Lane<T> owner(T value) {
+
+    Object key = keys.get(value);
+
+    return owners.get(key != null ? key : Song.keyOf(value));
+
+  }
+
+  /**
+   * Adds a sub-queue to the rotation, to take its turn after every sub-queue already in it.
+   *
+   * @param lane the sub-queue to add
+   */
+  private void join(Lane<T> lane) {
+
+    if (current == null) {
+      lane.next = lane;
+      lane.previous = lane;
+      current = lane;
+      return;
+    }
+
+    // The last turn of the round is the one just before the current one
+
+    Lane<T> last = current.previous;
+    lane.previous = last;
+    lane.next = current;
+    last.next = lane;
+    current.previous = lane;
+
+  }
+
+  /**
+   * Removes a sub-queue from the rotation. If it was its turn, the turn passes to the next one.
+   *
+   * @param lane the sub-queue to remove
+   */
+  private void leave(Lane<T> lane) {
+
+    if (lane.next == lane) {
+      current = null;
+      return;
+    }
+
+    lane.previous.next = lane.next;
+    lane.next.previous = lane.previous;
+
+    if (current == lane) {
+      current = lane.next;
+    }
+
+  }
+
+  /**
+   * The sub-queue of one submitter, linked into the rotation of submitters with elements queued.
+   */
+  private static class Lane<T> {
+
+    private final String submitter; // Submitter the elements are queued for
+
+    private final LinkedQueue<T> queue = new LinkedQueue<T>(); // Queued elements, in FIFO order
+
+    private Lane<T> next; // Sub-queue whose turn comes after this one
+
+    private Lane<T> previous; // Sub-queue whose turn comes before this one
+
+    /**
+     * Creates an empty sub-queue.
+     *
+     * @param submitter the submitter the elements are queued for
+     */
+    private Lane(String submitter) {
+
+      this.submitter = submitter;
+
+    }
+  }
+
+  /**
+   * Fail-fast iterator that deals out the sub-queues in turn. The first round walks the rotation;
+   * sub-queues with elements left are kept in rotation order for the later rounds, so visiting the
+   * first k elements touches at most k sub-queues.
+   */
+  private class QueueIterator implements Iterator<T> {
+
+    private Lane<T> firstRound = current; // Next sub-queue of the first round, or null after it
+
+    private final ArrayDeque<Iterator<T>> rounds = new ArrayDeque<Iterator<T>>(); // Later turns
+
+    private final int expectedModCount = modCount; // Queue version this iterator was created at
+
+    @Override
+    public boolean hasNext() {
+
+      return firstRound != null || !rounds.isEmpty();
+
+    }
+
+    @Override
+    public T next() {
+
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      Iterator<T> turn;
+
+      if (firstRound != null) {
+
+        turn = firstRound.queue.iterator();
+        firstRound = firstRound.next != current ? firstRound.next : null;
+
+      } else {
+
+        turn = rounds.poll();
+
+        if (turn == null) {
+          throw new NoSuchElementException();
+        }
+
+      }
+
+      T value = turn.next();
+
+      if (turn.hasNext()) {
+        rounds.add(turn);
+      }
+
+      return value;
+
+    }
+  }
+}
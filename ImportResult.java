@@ -0,0 +1,79 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of importing a catalog dump: the albums built from it, and how many rows were
+ * imported as songs or rejected because they could not be parsed, broke the Song or Album rules,
+ * or repeated a song already in its album.
+ *
+ * @author rishabhaggarwal
+ */
+public class ImportResult {
+
+  private final List<Album> albums; // Albums built, in the order they first appeared
+
+  private final long imported; // Rows added to an album as a song
+
+  private final long rejected; // Rows skipped as invalid or duplicate
+
+  /**
+   * Creates a result from the albums and row counts of an import.
+   *
+   * @param albums   albums built from the dump
+   * @param imported number of rows added as songs
+   * @param rejected number of rows skipped
+   */
+  public ImportResult(List<Album> albums, long imported, long rejected) {
+
+    this.albums = Collections.unmodifiableList(albums);
+    this.imported = imported;
+    this.rejected = rejected;
+
+  }
+
+  /**
+   * Returns the albums built from the dump, in the order their first row appeared. The songs of
+   * each album were added in the order of their rows.
+   *
+   * @return unmodifiable list of albums
+   */
+  public List<Album> getAlbums() {
+
+    return albums;
+
+  }
+
+  /**
+   * Returns the number of rows that were added to an album as a song.
+   *
+   * @return number of imported rows
+   */
+  public long getImported() {
+
+    return imported;
+
+  }
+
+  /**
+   * Returns the number of rows that were skipped as invalid or duplicate.
+   *
+   * @return number of rejected rows
+   */
+  public long getRejected() {
+
+    return rejected;
+
+  }
+
+  /**
+   * Returns a summary of the import. Format: albums=A, imported=N, rejected=M
+   *
+   * @return counts of albums, imported rows and rejected rows
+   */
+  @Override
+  public String toString() {
+
+    return "albums=" + albums.size() + ", imported=" + imported + ", rejected=" + rejected;
+
+  }
+}
@@ -1,11 +1,68 @@
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * Represents a jukebox that manages a queue of songs with a fixed capacity. Uses LinkedQueue to
- * maintain FIFO ordering of songs for playback.
+ * Represents a jukebox that manages a queue of songs with a fixed capacity. Uses LinkedQueue by
+ * default to maintain FIFO ordering of songs for playback; any other QueueADT, such as an
+ * ArrayQueue pre-sized to the capacity, can be supplied instead.
+ *
+ * <p>
+ * Every operation runs under one lock, so a JukeBox can be shared between request threads and a
+ * player thread. Besides the methods that throw when the queue is full or empty, put/take wait
+ * until a slot or a song is available and offer/poll wait for a bounded time.
+ *
+ * <p>
+ * Duplicates are found through an index of the identities songs had when they were queued, so a
+ * queued song that is moved to another album while it waits is still matched, and leaves the
+ * index when it plays, under its old identity.
+ *
+ * <p>
+ * A jukebox created with {@link #recover(int, QueueADT, QueueJournal)} is persistent: every change
+ * to its queue is also appended to a QueueJournal, so the queue survives a restart. A change is
+ * journalled before it is made: if it cannot be, for example because the journal failed to reach
+ * the disk, it throws UncheckedIOException and leaves the queue as it was.
+ *
+ * <p>
+ * A jukebox running on a PriorityLaneQueue also has priority lanes: songs can be queued into a
+ * lane with {@link #addSongToQueue(Song, int)} and moved between lanes with
+ * {@link #setPriority(Song, int)}, each in O(log n), while the capacity and duplicate rules stay
+ * the same. On a jukebox created on any other queue, these methods throw IllegalStateException.
+ *
+ * <p>
+ * A jukebox running on a FairShareQueue is fair between listeners: songs are queued on behalf of a
+ * submitter, for example with {@link #addAlbumToQueue(Album, String)}, and playback takes turns
+ * between the submitters with songs waiting, so one listener queueing a whole album does not hold
+ * up everyone else. The capacity and duplicate rules apply across all submitters. On a jukebox
+ * created on any other queue, the methods taking a submitter throw IllegalStateException.
+ *
+ * <p>
+ * With a {@link RepeatWindow} set, a song that played recently counts as a duplicate until it
+ * leaves the window, so it cannot be queued and played again right away.
+ *
+ * <p>
+ * A jukebox running on a SongIdQueue uses the queue's bit set of queued song ids as its duplicate
+ * index, so a large queue is held as ints and bits end to end, and adding a song costs one
+ * registry lookup. Songs played from such a jukebox are the registry's songs for their ids: equal
+ * to the songs that were added, but the first equal song registered, not necessarily the same
+ * object.
  * 
  * @author rishabhaggarwal
  */
@@ -13,7 +70,37 @@ public class JukeBox {
 
   private int capacity; // Maximum number of songs allowed
 
-  private LinkedQueue<Song> songQueue; // Queue to store songs for playback
+  private QueueADT<Song> songQueue; // Queue to store songs for playback
+
+  private HashSet<SongKey> queuedSongs; // Identities the queued songs had when they were queued
+
+  private IdentityHashMap<Song, SongKey> queuedKeys; // Identity each queued song was queued with
+
+  private SongIdQueue songIds; // songQueue if it stores song ids, otherwise null
+
+  private SongRegistry registry; // Ids of songQueue's songs if it is a SongIdQueue, otherwise null
+
+  private RandomGenerator random; // Source of randomness for shuffleSongQueue()
+
+  private PriorityLaneQueue<Song> lanes; // songQueue if it has priority lanes, otherwise null
+
+  private FairShareQueue<Song> shares; // songQueue if it takes turns between submitters, or null
+
+  private RepeatWindow recentlyPlayed; // Songs that cannot be queued again yet, or null
+
+  private QueueJournal journal; // Write-ahead journal of queue changes, or null if not persistent
+
+  private StringBuilder rendering; // Queued songs, each followed by " -> ", or null until rendered
+
+  private int renderStart; // Index in rendering where the song at the front of the queue starts
+
+  private String rendered; // Result of toString, or null if the queue changed since it was built
+
+  private final ReentrantLock lock = new ReentrantLock(); // Guards all state of the jukebox
+
+  private final Condition notEmpty = lock.newCondition(); // Signalled when a song is queued
+
+  private final Condition notFull = lock.newCondition(); // Signalled when a song is played
 
   /**
    * Creates a new JukeBox with specified capacity.
@@ -23,53 +110,283 @@ public class JukeBox {
    */
   public JukeBox(int capacity) {
 
-    if (capacity < 0) {
+    this(capacity, new LinkedQueue<Song>());
+
+  }
+
+  /**
+   * Creates a new JukeBox with specified capacity that stores its songs in the given queue. For
+   * example, passing {@code new ArrayQueue<Song>(capacity)} gives a jukebox whose enqueue and
+   * playback never allocate.
+   *
+   * @param capacity  maximum number of songs allowed
+   * @param songQueue empty queue to store songs for playback
+   * @throws IllegalArgumentException if capacity is negative, or songQueue is null or not empty
+   */
+  public JukeBox(int capacity, QueueADT<Song> songQueue) {
+
+    if (capacity < 0 || songQueue == null || !songQueue.isEmpty()) {
       throw new IllegalArgumentException();
     }
 
     this.capacity = capacity;
-    songQueue = new LinkedQueue<Song>();
+    this.songQueue = songQueue;
+    lanes = songQueue instanceof PriorityLaneQueue ? (PriorityLaneQueue<Song>) songQueue : null;
+    shares = songQueue instanceof FairShareQueue ? (FairShareQueue<Song>) songQueue : null;
+
+    if (songQueue instanceof SongIdQueue) {
+      songIds = (SongIdQueue) songQueue;
+      registry = songIds.registry();
+    } else {
+      queuedSongs = new HashSet<SongKey>();
+      queuedKeys = new IdentityHashMap<Song, SongKey>();
+    }
+
+    random = new SplittableRandom();
+
+  }
+
+  /**
+   * Creates a persistent JukeBox: rebuilds the queue saved in the journal into songQueue, then
+   * journals every later change to the queue. If more songs were recovered than the capacity
+   * allows, they are all kept and the jukebox stays full until enough have been played.
+   *
+   * @param capacity  maximum number of songs allowed
+   * @param songQueue empty queue to store songs for playback
+   * @param journal   journal to recover from and append to, not yet replayed
+   * @return the jukebox holding the recovered queue
+   * @throws IllegalArgumentException if capacity is negative, or songQueue is null or not empty, or
+   *                                  journal is null
+   * @throws IOException              if the journal cannot be read
+   */
+  public static JukeBox recover(int capacity, QueueADT<Song> songQueue, QueueJournal journal)
+      throws IOException {
+
+    if (journal == null) {
+      throw new IllegalArgumentException();
+    }
+
+    JukeBox jukebox = new JukeBox(capacity, songQueue);
+
+    journal.replay(songQueue);
+
+    // A SongIdQueue is its own index; any other queue's songs are indexed now
+
+    if (jukebox.songIds == null) {
+
+      for (Song song : songQueue) {
+        jukebox.index(song);
+      }
+
+    }
+
+    jukebox.journal = journal;
+
+    return jukebox;
 
   }
 
   /**
    * Adds songs from an album to the queue until full or album is empty. Maintains the order of
-   * songs using a temporary stack.
+   * songs, and silently skips songs that are already queued. Unless the queue is already full,
+   * every song is removed from the album, and the ones that no longer fit are dropped.
    *
    * @param album the album containing songs to add
    */
   public void addAlbumToQueue(Album album) {
 
-    // Temporary stack to reverse order of songs
+    addAll(album);
 
-    LinkedStack<Song> tempStack = new LinkedStack<>();
+  }
 
-    // Extract songs from album while space available
+  /**
+   * Adds songs from an album to the given submitter's turns until full or album is empty, like
+   * addAlbumToQueue(Album).
+   *
+   * @param album     the album containing songs to add
+   * @param submitter the listener the songs are queued for
+   * @throws IllegalStateException    if the jukebox was not created on a FairShareQueue
+   * @throws IllegalArgumentException if submitter is null or empty
+   */
+  public void addAlbumToQueue(Album album, String submitter) {
 
-    while (!isFull()) {
+    addAll(album, submitter);
 
-      try {
+  }
+
+  /**
+   * Removes the songs from the album and adds them in one batch, in the order they were added to
+   * the album, like addAlbumToQueue: unless the queue is already full, every song is taken from
+   * the album, and songs are queued oldest first, skipping duplicates, until no slot is left.
+   *
+   * @param album the album containing songs to add
+   * @return the songs that were queued and the ones rejected as duplicates or for lack of space
+   */
+  public EnqueueResult addAll(Album album) {
+
+    return enqueueAlbum(album, null);
+
+  }
+
+  /**
+   * Removes the songs from the album and adds them in one batch to the given submitter's turns, in
+   * the order they were added to the album, like addAll(Album).
+   *
+   * @param album     the album containing songs to add
+   * @param submitter the listener the songs are queued for
+   * @return the songs that were queued and the ones rejected as duplicates or for lack of space
+   * @throws IllegalStateException    if the jukebox was not created on a FairShareQueue
+   * @throws IllegalArgumentException if submitter is null or empty
+   */
+  public EnqueueResult addAll(Album album, String submitter) {
+
+    checkSubmitter(submitter);
+
+    return enqueueAlbum(album, submitter);
+
+  }
+
+  /**
+   * Adds a batch of songs to the queue in one pass. Capacity is checked once for the whole batch,
+   * each song is checked against the queue and the rest of the batch through the duplicate index,
+   * and the accepted songs are appended as a block. Nothing is thrown for rejected songs.
+   *
+   * @param songs the songs to add, in the order they should be queued
+   * @return the songs that were queued and the ones rejected as duplicates or for lack of space
+   */
+  public EnqueueResult addAll(Collection<Song> songs) {
+
+    return enqueueBatch(songs, null, journalling());
+
+  }
+
+  /**
+   * Adds a batch of songs to the given submitter's turns in one pass, like addAll(Collection).
+   *
+   * @param songs     the songs to add, in the order they should be queued
+   * @param submitter the listener the songs are queued for
+   * @return the songs that were queued and the ones rejected as duplicates or for lack of space
+   * @throws IllegalStateException    if the jukebox was not created on a FairShareQueue
+   * @throws IllegalArgumentException if submitter is null or empty
+   */
+  public EnqueueResult addAll(Collection<Song> songs, String submitter) {
+
+    checkSubmitter(submitter);
+
+    return enqueueBatch(songs, submitter, journalling());
+
+  }
 
-        Song song = album.removeSong();
-        tempStack.push(song);
+  /**
+   * Removes the songs from the album and adds them in one batch, oldest first, unless the queue is
+   * already full.
+   *
+   * @param album     the album containing songs to add
+   * @param submitter the listener the songs are queued for, or null for no particular one
+   * @return the songs that were queued and the ones rejected as duplicates or for lack of space
+   */
+  private EnqueueResult enqueueAlbum(Album album, String submitter) {
+
+    lock.lock();
+
+    try {
+
+      if (isFull()) {
+        return new EnqueueResult(new ArrayList<Song>(), new ArrayList<Song>());
+      }
+
+      // A journal that can take no more changes has to turn the album away before it is emptied
 
-      } catch (NoSuchElementException e) {
-        break;
+      QueueJournal.Changes changes = journalling();
+
+      // Take every song, then reverse them into album order so the oldest are queued first
+
+      ArrayList<Song> songs = new ArrayList<Song>(album.size());
+
+      while (album.size() > 0) {
+        songs.add(album.removeSong());
       }
 
+      Collections.reverse(songs);
+
+      return enqueueBatch(songs, submitter, changes);
+
+    } finally {
+      lock.unlock();
     }
 
-    // Add songs to queue in correct order
-    while (!tempStack.isEmpty()) {
+  }
 
-      try {
+  /**
+   * Adds a batch of songs to the queue in one pass, checking capacity once and each song against
+   * the duplicate index. A song that cannot be journalled is rejected like a duplicate, so it does
+   * not hold up the rest of the batch.
+   *
+   * @param songs     the songs to add, in the order they should be queued
+   * @param submitter the listener the songs are queued for, or null for no particular one
+   * @param changes   the changes to journal the accepted songs in, or null if not persistent
+   * @return the songs that were queued and the ones rejected as duplicates or for lack of space
+   */
+  private EnqueueResult enqueueBatch(Collection<Song> songs, String submitter,
+      QueueJournal.Changes changes) {
+
+    lock.lock();
+
+    try {
+
+      int free = capacity - songQueue.size();
+
+      ArrayList<Song> accepted = new ArrayList<Song>(Math.max(0, Math.min(free, songs.size())));
+      ArrayList<Song> rejected = new ArrayList<Song>();
+
+      // The index holds queued songs and songs accepted so far, so one lookup covers both
+
+      for (Song song : songs) {
+
+        Song shown = null;
+
+        if (accepted.size() < free && !playedRecently(song)
+            && encodeAdd(changes, song, submitter)) {
+
+          shown = claim(song);
+
+          if (shown == null && changes != null) {
+            changes.removeLast();
+          }
+
+        }
+
+        if (shown != null) {
+          accepted.add(song);
+          renderEnqueued(shown);
+        } else {
+          rejected.add(song);
+        }
+
+      }
 
-        addSongToQueue(tempStack.pop());
+      if (!accepted.isEmpty()) {
+
+        // A SongIdQueue already holds the accepted songs, queued as they were claimed
+
+        if (submitter != null) {
+          shares.enqueueAll(accepted, submitter);
+        } else if (songIds == null) {
+          songQueue.enqueueAll(accepted);
+        }
+
+        notEmpty.signalAll();
+
+        if (changes != null) {
+          journalled(changes);
+        }
 
-      } catch (IllegalStateException | IllegalArgumentException e) {
-        continue;
       }
 
+      return new EnqueueResult(accepted, rejected);
+
+    } finally {
+      lock.unlock();
     }
 
   }
@@ -79,27 +396,193 @@ public class JukeBox {
    *
    * @param song the song to add
    * @throws IllegalStateException    if queue is full
-   * @throws IllegalArgumentException if song already in queue
+   * @throws IllegalArgumentException if song already in queue or in the repeat window
    */
   public void addSongToQueue(Song song) {
 
-    if (isFull()) {
-      throw new IllegalStateException();
+    lock.lock();
+
+    try {
+
+      if (isFull()) {
+        throw new IllegalStateException();
+      }
+
+      enqueueSong(song, PriorityLaneQueue.DEFAULT_PRIORITY, null);
+
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Adds a single song to the back of the priority lane with the given priority, if space allows
+   * and song isn't duplicate. Songs in higher lanes are played first.
+   *
+   * @param song     the song to add
+   * @param priority the lane to add the song to
+   * @throws IllegalStateException    if the jukebox was not created on a PriorityLaneQueue, or
+   *                                  queue is full
+   * @throws IllegalArgumentException if song already in queue or in the repeat window
+   */
+  public void addSongToQueue(Song song, int priority) {
+
+    checkLanes();
+
+    lock.lock();
+
+    try {
+
+      if (isFull()) {
+        throw new IllegalStateException();
+      }
+
+      enqueueSong(song, priority, null);
+
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Adds a single song to the given submitter's turns if space allows and song isn't duplicate.
+   * Capacity and duplicates are checked across all submitters.
+   *
+   * @param song      the song to add
+   * @param submitter the listener the song is queued for
+   * @throws IllegalStateException    if the jukebox was not created on a FairShareQueue, or queue
+   *                                  is full
+   * @throws IllegalArgumentException if submitter is null or empty, or song already in queue or in
+   *                                  the repeat window
+   */
+  public void addSongToQueue(Song song, String submitter) {
+
+    checkSubmitter(submitter);
+
+    lock.lock();
+
+    try {
+
+      if (isFull()) {
+        throw new IllegalStateException();
+      }
+
+      enqueueSong(song, PriorityLaneQueue.DEFAULT_PRIORITY, submitter);
+
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Moves a queued song to the back of the priority lane with the given priority, in O(log n)
+   * instead of draining and refilling the queue. Moving a song to the lane it is already in sends
+   * it to the back of that lane.
+   *
+   * @param song     the queued song
+   * @param priority the lane to move the song to
+   * @return true if the song was queued and has been moved, false if it is not in the queue
+   * @throws IllegalStateException if the jukebox was not created on a PriorityLaneQueue
+   */
+  public boolean setPriority(Song song, int priority) {
+
+    checkLanes();
+
+    lock.lock();
+
+    try {
+
+      QueueJournal.Changes changes = journalling();
+
+      if (changes != null) {
+        changes.priority(song, priority);
+      }
+
+      if (!lanes.setPriority(song, priority)) {
+        return false;
+      }
+
+      // The song moved, so the rendering has to be rebuilt the next time it is needed
+
+      rendering = null;
+      rendered = null;
+
+      if (changes != null) {
+        journalled(changes);
+      }
+
+      return true;
+
+    } finally {
+      lock.unlock();
     }
 
-    // Check for duplicate songs
+  }
+
+  /**
+   * Adds a single song to the queue, waiting for a free slot if the jukebox is full.
+   *
+   * @param song the song to add
+   * @throws IllegalArgumentException if song already in queue or in the repeat window
+   * @throws InterruptedException     if interrupted while waiting
+   */
+  public void put(Song song) throws InterruptedException {
 
-    ArrayList<Song> songs = songQueue.getList();
+    lock.lockInterruptibly();
 
-    for (Song s : songs) {
+    try {
 
-      if (s.equals(song)) {
-        throw new IllegalArgumentException();
+      while (isFull()) {
+        notFull.await();
       }
 
+      enqueueSong(song, PriorityLaneQueue.DEFAULT_PRIORITY, null);
+
+    } finally {
+      lock.unlock();
     }
 
-    songQueue.enqueue(song);
+  }
+
+  /**
+   * Adds a single song to the queue, waiting up to the given time for a free slot if the jukebox
+   * is full.
+   *
+   * @param song    the song to add
+   * @param timeout how long to wait before giving up, in units of unit
+   * @param unit    the unit of timeout
+   * @return true if the song was added, false if no slot became free in time
+   * @throws IllegalArgumentException if song already in queue or in the repeat window
+   * @throws InterruptedException     if interrupted while waiting
+   */
+  public boolean offer(Song song, long timeout, TimeUnit unit) throws InterruptedException {
+
+    long nanos = unit.toNanos(timeout);
+
+    lock.lockInterruptibly();
+
+    try {
+
+      while (isFull()) {
+
+        if (nanos <= 0) {
+          return false;
+        }
+
+        nanos = notFull.awaitNanos(nanos);
+
+      }
+
+      enqueueSong(song, PriorityLaneQueue.DEFAULT_PRIORITY, null);
+
+      return true;
+
+    } finally {
+      lock.unlock();
+    }
 
   }
 
@@ -121,7 +604,13 @@ public class JukeBox {
    */
   public boolean isEmpty() {
 
-    return songQueue.isEmpty();
+    lock.lock();
+
+    try {
+      return songQueue.isEmpty();
+    } finally {
+      lock.unlock();
+    }
 
   }
 
@@ -132,87 +621,816 @@ public class JukeBox {
    */
   public boolean isFull() {
 
-    return songQueue.size() >= this.capacity;
+    lock.lock();
+
+    try {
+      return songQueue.size() >= this.capacity;
+    } finally {
+      lock.unlock();
+    }
 
   }
 
   /**
    * Removes and returns the next song in queue for playback.
    *
-   * @return the next song to play
+   * @return the next song to play; with a SongIdQueue, the registry's song for its id, which is
+   *         equal to the song that was added but may be another object
    * @throws NoSuchElementException if queue is empty
    */
   public Song playSong() {
 
-    if (isEmpty()) {
-      throw new NoSuchElementException();
+    lock.lock();
+
+    try {
+
+      if (isEmpty()) {
+        throw new NoSuchElementException();
+      }
+
+      return dequeueSong();
+
+    } finally {
+      lock.unlock();
     }
 
-    return songQueue.dequeue();
+  }
+
+  /**
+   * Removes and returns the next song in queue for playback, waiting for a song to be added if the
+   * jukebox is empty.
+   *
+   * @return the next song to play
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Song take() throws InterruptedException {
+
+    lock.lockInterruptibly();
+
+    try {
+
+      while (isEmpty()) {
+        notEmpty.await();
+      }
+
+      return dequeueSong();
+
+    } finally {
+      lock.unlock();
+    }
 
   }
 
   /**
-   * Randomly reorders songs in the queue.
+   * Removes and returns the next song in queue for playback, waiting up to the given time for a
+   * song to be added if the jukebox is empty.
+   *
+   * @param timeout how long to wait before giving up, in units of unit
+   * @param unit    the unit of timeout
+   * @return the next song to play, or null if no song was added in time
+   * @throws InterruptedException if interrupted while waiting
    */
-  public void shuffleSongQueue() {
+  public Song poll(long timeout, TimeUnit unit) throws InterruptedException {
 
-    // Get current songs and shuffle them
+    long nanos = unit.toNanos(timeout);
 
-    ArrayList<Song> songs = songQueue.getList();
+    lock.lockInterruptibly();
 
-    Collections.shuffle(songs);
+    try {
 
-    // Rebuild queue with shuffled songs
+      while (isEmpty()) {
 
-    songQueue.clear();
+        if (nanos <= 0) {
+          return null;
+        }
 
-    for (Song song : songs) {
+        nanos = notEmpty.awaitNanos(nanos);
 
-      songQueue.enqueue(song);
+      }
 
+      return dequeueSong();
+
+    } finally {
+      lock.unlock();
     }
 
   }
 
   /**
-   * Returns current number of songs in queue.
-   *
-   * @return number of songs in queue
+   * Randomly reorders songs in the queue. The set of queued songs is unchanged, so the duplicate
+   * index does not need to be rebuilt.
    */
-  public int size() {
+  public void shuffleSongQueue() {
 
-    return songQueue.size();
+    shuffleSongQueue(random);
 
   }
 
   /**
-   * Returns string representation of queue. Format: Song1 -> Song2 -> ... -> END
+   * Randomly reorders songs in the queue using the given generator. The songs are permuted in place
+   * with a uniform Fisher-Yates shuffle, so a seeded generator such as SplittableRandom gives a
+   * reproducible order. A persistent jukebox draws one seed from the generator and shuffles with a
+   * SplittableRandom created from it, so the journal only has to record the seed. With priority
+   * lanes, songs are only reordered within their lane.
    *
-   * @return formatted string of queue contents
+   * @param random the source of randomness
    */
-  public String toString() {
+  public void shuffleSongQueue(RandomGenerator random) {
 
-    ArrayList<Song> list = songQueue.getList();
+    lock.lock();
 
-    if (list.isEmpty()) {
-      return "END";
-    }
+    try {
 
-    // Build string with arrows between songs
+      // Songs move, so the rendering has to be rebuilt the next time it is needed
 
-    StringBuilder sb = new StringBuilder();
+      rendering = null;
+      rendered = null;
 
-    for (int i = 0; i < list.size(); i++) {
+      if (journal == null) {
+        songQueue.shuffle(random);
+        return;
+      }
+
+      long seed = random.nextLong();
+      QueueJournal.Changes changes = journal.changes();
+      changes.shuffle(seed);
 
-      sb.append(list.get(i).toString());
-      sb.append(" -> ");
+      songQueue.shuffle(new SplittableRandom(seed));
+      journalled(changes);
 
+    } finally {
+      lock.unlock();
     }
 
-    sb.append("END");
+  }
+
+  /**
+   * Removes all songs from the queue.
+   */
+  public void clear() {
+
+    lock.lock();
+
+    try {
 
-    return sb.toString();
+      QueueJournal.Changes changes = journalling();
 
+      if (changes != null) {
+        changes.clear();
+      }
+
+      songQueue.clear();
+
+      if (songIds == null) {
+        queuedSongs.clear();
+        queuedKeys.clear();
+      }
+
+      notFull.signalAll();
+
+      rendering = null;
+      rendered = null;
+
+      if (changes != null) {
+        journalled(changes);
+      }
+
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Returns current number of songs in queue.
+   *
+   * @return number of songs in queue
+   */
+  public int size() {
+
+    lock.lock();
+
+    try {
+      return songQueue.size();
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Sets the window of recently played songs that cannot be queued again, replacing the current
+   * one. Songs played from now on are recorded in it; songs already queued stay queued.
+   *
+   * @param window the window of recent plays, or null to allow replaying songs right away
+   */
+  public void setRepeatWindow(RepeatWindow window) {
+
+    lock.lock();
+
+    try {
+      recentlyPlayed = window;
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Checks if a song is in the queue, in constant time through the duplicate index.
+   *
+   * @param song the song to look for
+   * @return true if an equal song is queued
+   */
+  public boolean contains(Song song) {
+
+    lock.lock();
+
+    try {
+      return indexed(song);
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Returns the next n songs to be played, or all of them if fewer are queued, without removing
+   * them. Only those songs are visited, so showing what is up next does not depend on the length
+   * of the queue.
+   *
+   * @param n the maximum number of songs to return
+   * @return a new list of up to n songs from the front of the queue
+   * @throws IllegalArgumentException if n is negative
+   */
+  public List<Song> peek(int n) {
+
+    lock.lock();
+
+    try {
+      return songQueue.peek(n);
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Returns the queued songs at positions from (inclusive) to to (exclusive), counted from the
+   * next song to be played at 0, without removing them. Positions past the end of the queue are
+   * ignored, so pages can be read without checking the size first. How far the queue has to be
+   * walked to reach position from depends on its implementation: an ArrayQueue jumps straight to
+   * it, an UnrolledLinkedQueue skips whole chunks and a LinkedQueue follows the links.
+   *
+   * @param from position of the first song to return
+   * @param to   position after the last song to return
+   * @return a new list of the songs in that window, in playback order
+   * @throws IllegalArgumentException if from is negative or to is less than from
+   */
+  public List<Song> range(int from, int to) {
+
+    lock.lock();
+
+    try {
+      return songQueue.range(from, to);
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Returns a lazy stream over the queued songs in playback order. Songs are read one at a time,
+   * each under the jukebox lock, as the stream consumes them, so for example
+   * {@code stream().limit(10)} reads only ten songs. The stream fails fast: consuming it after the
+   * queue has changed since it started throws ConcurrentModificationException.
+   *
+   * @return a stream of the queued songs
+   */
+  public Stream<Song> stream() {
+
+    return StreamSupport.stream(new SongSpliterator(), false);
+
+  }
+
+  /**
+   * Returns string representation of queue. Format: Song1 -> Song2 -> ... -> END
+   *
+   * <p>
+   * The string is kept until the queue changes, and the rendered songs are kept even then: adding
+   * a song appends it and playing one skips past it, so only a shuffle or clear makes the next
+   * call walk the whole queue again. With priority lanes or submitters, so does adding a song or
+   * changing its priority. The rendering shows each song as it was when it was queued, so a queued
+   * song moved to another album keeps its old album here until the queue is walked again.
+   *
+   * @return formatted string of queue contents
+   */
+  public String toString() {
+
+    lock.lock();
+
+    try {
+
+      if (rendered != null) {
+        return rendered;
+      }
+
+      if (rendering == null) {
+
+        // Build string with arrows between songs, walking the queue in place
+
+        rendering = new StringBuilder();
+        renderStart = 0;
+
+        for (Song song : songQueue) {
+
+          rendering.append(song.toString());
+          rendering.append(" -> ");
+
+        }
+
+      }
+
+      rendered = new StringBuilder(rendering.length() - renderStart + 3)
+          .append(rendering, renderStart, rendering.length()).append("END").toString();
+
+      return rendered;
+
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Writes the queue in the format of toString, streaming the songs to out instead of building a
+   * string. At most limit songs are written, from the front; if any are left out, "..." stands in
+   * for them, as in Song1 -> Song2 -> ... -> END.
+   *
+   * @param out   where to write the queue
+   * @param limit maximum number of songs to write
+   * @throws IllegalArgumentException if out is null or limit is negative
+   * @throws IOException              if out cannot be written
+   */
+  public void renderTo(Appendable out, int limit) throws IOException {
+
+    if (out == null || limit < 0) {
+      throw new IllegalArgumentException();
+    }
+
+    lock.lock();
+
+    try {
+
+      // The whole queue is wanted and already rendered
+
+      if (rendered != null && limit >= songQueue.size()) {
+        out.append(rendered);
+        return;
+      }
+
+      int written = 0;
+
+      for (Song song : songQueue) {
+
+        if (written == limit) {
+          out.append("... -> ");
+          break;
+        }
+
+        out.append(song.toString()).append(" -> ");
+        written++;
+
+      }
+
+      out.append("END");
+
+    } finally {
+      lock.unlock();
+    }
+
+  }
+
+  /**
+   * Adds a song to the back of the queue, or of its priority lane or submitter's turns, and to the
+   * index, and wakes a waiting player. The caller must hold the lock and have checked that the
+   * jukebox is not full.
+   *
+   * @param song      the song to add
+   * @param priority  the lane to add the song to; ignored if the queue has no priority lanes
+   * @param submitter the listener the song is queued for, or null for no particular one
+   * @throws IllegalArgumentException if song already in queue or in the repeat window
+   */
+  private void enqueueSong(Song song, int priority, String submitter) {
+
+    // Journal the song before claiming it, so one that cannot be journalled leaves no trace
+
+    QueueJournal.Changes changes = journalling();
+
+    if (changes != null) {
+
+      journalAdd(changes, song, submitter);
+
+      if (priority != PriorityLaneQueue.DEFAULT_PRIORITY) {
+        changes.priority(song, priority);
+      }
+
+    }
+
+    // Check for duplicate songs against the index, not the whole queue
+
+    Song shown = playedRecently(song) ? null : claim(song);
+
+    if (shown == null) {
+      throw new IllegalArgumentException();
+    }
+
+    if (lanes != null) {
+      lanes.enqueue(song, priority);
+    } else if (submitter != null) {
+      shares.enqueue(song, submitter);
+    } else if (songIds == null) {
+      songQueue.enqueue(song);
+    }
+
+    notEmpty.signal();
+    renderEnqueued(shown);
+
+    if (changes != null) {
+      journalled(changes);
+    }
+
+  }
+
+  /**
+   * Removes the song at the front of the queue and from the index, and wakes a waiting producer.
+   * The caller must hold the lock and have checked that the jukebox is not empty.
+   *
+   * @return the removed song
+   */
+  private Song dequeueSong() {
+
+    QueueJournal.Changes changes = journalling();
+
+    if (changes != null) {
+      changes.play();
+    }
+
+    Song song;
+
+    if (songIds != null) {
+
+      // Take the id straight from the queue, so playing a song never hashes it
+
+      song = registry.song(songIds.dequeueId());
+
+    } else {
+      song = songQueue.dequeue();
+      queuedSongs.remove(queuedKeys.remove(song));
+    }
+
+    notFull.signal();
+
+    if (recentlyPlayed != null) {
+      recentlyPlayed.played(song);
+    }
+
+    renderDequeued(song);
+
+    if (changes != null) {
+      journalled(changes);
+    }
+
+    return song;
+
+  }
+
+  /**
+   * Claims a song's place in the duplicate index. With a SongIdQueue, whose bit set of queued ids
+   * is the index, the song's id is looked up once and queued right away; with any other queue, the
+   * song is added to the index and the caller queues it. The caller must hold the lock.
+   *
+   * @param song the song to add
+   * @return the song as the queue will show it, or null if the song or an equal one is queued
+   */
+  private Song claim(Song song) {
+
+    if (songIds == null) {
+      return index(song) ? song : null;
+    }
+
+    int id = registry.idOf(song);
+
+    if (songIds.containsId(id)) {
+      return null;
+    }
+
+    songIds.enqueueId(id);
+
+    return registry.song(id);
+
+  }
+
+  /**
+   * Adds a song to the set of queued identities. The identity is captured now and the song is
+   * removed from the index under it, so moving a queued song to another album cannot leave a
+   * stale entry behind. The caller must hold the lock and the queue must not be a SongIdQueue.
+   *
+   * @param song the song to add
+   * @return true if neither the song nor an equal one was in the index yet
+   */
+  private boolean index(Song song) {
+
+    SongKey key = song.getKey();
+
+    if (!queuedSongs.add(key)) {
+      return false;
+    }
+
+    // The same song may have been queued under the identity it had before it moved
+
+    if (queuedKeys.putIfAbsent(song, key) != null) {
+      queuedSongs.remove(key);
+      return false;
+    }
+
+    return true;
+
+  }
+
+  /**
+   * Checks whether a song is in the duplicate index. The caller must hold the lock.
+   *
+   * @param song the song to look for
+   * @return true if the song itself or an equal one is queued
+   */
+  private boolean indexed(Song song) {
+
+    if (songIds != null) {
+      return songIds.contains(song);
+    }
+
+    return queuedKeys.containsKey(song) || queuedSongs.contains(song.getKey());
+
+  }
+
+  /**
+   * Checks whether a song played too recently to be queued again. The caller must hold the lock.
+   *
+   * @param song the song to check
+   * @return true if the song is in the repeat window
+   */
+  private boolean playedRecently(Song song) {
+
+    return recentlyPlayed != null && recentlyPlayed.contains(song);
+
+  }
+
+  /**
+   * Encodes a song about to be added to the queue, with its submitter if it has one.
+   *
+   * @param changes   the changes to encode the song in
+   * @param song      the song to add
+   * @param submitter the listener the song is queued for, or null for no particular one
+   * @throws UncheckedIOException if the song cannot be journalled
+   */
+  private static void journalAdd(QueueJournal.Changes changes, Song song, String submitter) {
+
+    if (submitter != null) {
+      changes.add(song, submitter);
+    } else {
+      changes.add(song);
+    }
+
+  }
+
+  /**
+   * Encodes a song about to be added as part of a batch, where a song that cannot be journalled is
+   * rejected rather than failing the whole batch.
+   *
+   * @param changes   the changes to encode the song in, or null if the jukebox is not persistent
+   * @param song      the song to add
+   * @param submitter the listener the song is queued for, or null for no particular one
+   * @return true if the song may be added, false if it cannot be journalled
+   */
+  private static boolean encodeAdd(QueueJournal.Changes changes, Song song, String submitter) {
+
+    if (changes == null) {
+      return true;
+    }
+
+    try {
+      journalAdd(changes, song, submitter);
+      return true;
+    } catch (UncheckedIOException e) {
+      return false;
+    }
+
+  }
+
+  /**
+   * Checks that the jukebox has priority lanes. Whether it has them is fixed by the queue it was
+   * created on, so calling a lane method on any other jukebox is a mistake in how it was set up.
+   *
+   * @throws IllegalStateException if the jukebox was not created on a PriorityLaneQueue
+   */
+  private void checkLanes() {
+
+    if (lanes == null) {
+      throw new IllegalStateException(
+          "No priority lanes: create the jukebox on a PriorityLaneQueue to use them");
+    }
+
+  }
+
+  /**
+   * Checks that songs can be queued for the given submitter. Like priority lanes, submitters are
+   * only available on a jukebox created on the queue that supports them.
+   *
+   * @param submitter the listener songs are queued for
+   * @throws IllegalStateException    if the jukebox was not created on a FairShareQueue
+   * @throws IllegalArgumentException if submitter is null or empty
+   */
+  private void checkSubmitter(String submitter) {
+
+    if (shares == null) {
+      throw new IllegalStateException(
+          "No submitters: create the jukebox on a FairShareQueue to queue songs for a listener");
+    }
+
+    if (submitter == null || submitter.isEmpty()) {
+      throw new IllegalArgumentException();
+    }
+
+  }
+
+  /**
+   * Appends a song added to the back of the queue to the rendering, if there is one. A song added
+   * to a priority lane or a submitter's turns may land anywhere in the queue, so with those the
+   * rendering is dropped instead. The caller must hold the lock.
+   *
+   * @param song the added song as the queue shows it, which for a SongIdQueue is the registry's
+   *             song for its id
+   */
+  private void renderEnqueued(Song song) {
+
+    rendered = null;
+
+    if (lanes != null || shares != null) {
+      rendering = null;
+    } else if (rendering != null) {
+      rendering.append(song.toString()).append(" -> ");
+    }
+
+  }
+
+  /**
+   * Skips the rendering past a song removed from the front of the queue, if there is a rendering.
+   * The skipped text is dropped once it makes up more than half the buffer, so each character is
+   * moved at most once on average. The caller must hold the lock.
+   *
+   * @param song the removed song
+   */
+  private void renderDequeued(Song song) {
+
+    rendered = null;
+
+    if (rendering == null) {
+      return;
+    }
+
+    // A song moved to another album while it was queued no longer matches its rendered text
+
+    String shown = song.toString();
+
+    if (!renderedAt(shown, renderStart)) {
+      rendering = null;
+      return;
+    }
+
+    renderStart += shown.length() + 4;
+
+    if (renderStart > rendering.length() / 2) {
+      rendering.delete(0, renderStart);
+      renderStart = 0;
+    }
+
+  }
+
+  /**
+   * Checks whether the rendering holds the given text at the given index. The caller must hold the
+   * lock and have checked that there is a rendering.
+   *
+   * @param text  the text to look for
+   * @param start index in the rendering where the text should start
+   * @return true if the rendering continues with text at start
+   */
+  private boolean renderedAt(String text, int start) {
+
+    if (start + text.length() > rendering.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < text.length(); i++) {
+
+      if (rendering.charAt(start + i) != text.charAt(i)) {
+        return false;
+      }
+
+    }
+
+    return true;
+
+  }
+
+  /**
+   * Starts journalling a change before it is made, so a change that cannot be journalled is turned
+   * away while the queue is still untouched.
+   *
+   * @return the changes to encode the change in, or null if the jukebox is not persistent
+   * @throws UncheckedIOException if the journal can no longer be written
+   */
+  private QueueJournal.Changes journalling() {
+
+    return journal != null ? journal.changes() : null;
+
+  }
+
+  /**
+   * Appends changes that have been made to the journal, and captures a snapshot of the queue if
+   * enough changes have been journalled since the last one. Neither can fail, so a change that has
+   * been made is never reported as failed. The caller must hold the lock, so the queue matches the
+   * journal while it is captured.
+   *
+   * @param changes the changes made to the queue
+   */
+  private void journalled(QueueJournal.Changes changes) {
+
+    journal.append(changes);
+
+    if (journal.snapshotDue()) {
+      journal.scheduleSnapshot(songQueue);
+    }
+
+  }
+
+  /**
+   * Spliterator behind stream(). It opens an iterator over the queue on its first advance and takes
+   * the lock for each song it reads, so the queue is never read without the lock and the queue's
+   * fail-fast iterator detects changes made between reads.
+   */
+  private class SongSpliterator implements Spliterator<Song> {
+
+    private Iterator<Song> songs; // Iterator over the queue, or null before the first advance
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Song> action) {
+
+      Song song;
+
+      lock.lock();
+
+      try {
+
+        if (songs == null) {
+          songs = songQueue.iterator();
+        }
+
+        if (!songs.hasNext()) {
+          return false;
+        }
+
+        song = songs.next();
+
+      } finally {
+        lock.unlock();
+      }
+
+      action.accept(song);
+
+      return true;
+
+    }
+
+    @Override
+    public Spliterator<Song> trySplit() {
+
+      return null;
+
+    }
+
+    @Override
+    public long estimateSize() {
+
+      return Long.MAX_VALUE;
+
+    }
+
+    @Override
+    public int characteristics() {
+
+      return Spliterator.ORDERED | Spliterator.NONNULL;
+
+    }
   }
 }
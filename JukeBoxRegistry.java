@@ -0,0 +1,333 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A registry of jukeboxes, one per room, spread over a fixed number of shards. Each shard owns its
+ * rooms and runs every action on them on its own single thread, so a room is only ever touched by
+ * one thread: its jukebox's lock is never contended, and rooms in different shards are worked on
+ * in parallel on different cores. A room belongs to the shard picked by the hash of its name, and
+ * its jukebox is created by the room factory the first time the room is used.
+ *
+ * <p>
+ * Actions are submitted with {@link #submit(String, Function)} and run in submission order per
+ * shard; the returned future completes with the action's result, or exceptionally with whatever it
+ * threw. An action runs on the shard's thread and holds up every room of the shard while it runs,
+ * so it must not block, for example on take() or put(). Queries across rooms, such as
+ * {@link #totalQueued()}, send one task to every shard, which all run at once, and merge the
+ * partial results.
+ *
+ * @author rishabhaggarwal
+ */
+public class JukeBoxRegistry implements Closeable {
+
+  private final Shard[] shards; // Shards the rooms are spread over
+
+  private final Function<String, JukeBox> roomFactory; // Creates the jukebox of a new room
+
+  /**
+   * Creates a registry with the given number of shards whose rooms each get a JukeBox with the
+   * given capacity.
+   *
+   * @param shards   number of shards, for example the number of available processors
+   * @param capacity capacity of each room's jukebox
+   * @throws IllegalArgumentException if shards is less than 1 or capacity is negative
+   */
+  public JukeBoxRegistry(int shards, int capacity) {
+
+    this(shards, roomsOf(capacity));
+
+  }
+
+  /**
+   * Creates a registry with the given number of shards that creates the jukebox of each new room
+   * with roomFactory. The factory runs on the room's shard thread.
+   *
+   * @param shards      number of shards, for example the number of available processors
+   * @param roomFactory creates the jukebox for a room name
+   * @throws IllegalArgumentException if shards is less than 1 or roomFactory is null
+   */
+  public JukeBoxRegistry(int shards, Function<String, JukeBox> roomFactory) {
+
+    if (shards < 1 || roomFactory == null) {
+      throw new IllegalArgumentException();
+    }
+
+    this.shards = new Shard[shards];
+    this.roomFactory = roomFactory;
+
+    for (int i = 0; i < shards; i++) {
+      this.shards[i] = new Shard("jukebox-shard-" + i);
+    }
+
+  }
+
+  /**
+   * Returns a room factory that gives each room a JukeBox with the given capacity.
+   *
+   * @param capacity capacity of each room's jukebox
+   * @return the room factory
+   * @throws IllegalArgumentException if capacity is negative
+   */
+  private static Function<String, JukeBox> roomsOf(int capacity) {
+
+    if (capacity < 0) {
+      throw new IllegalArgumentException();
+    }
+
+    return room -> new JukeBox(capacity);
+
+  }
+
+  /**
+   * Runs an action on a room's jukebox, on the room's shard thread, creating the room if it does
+   * not exist yet.
+   *
+   * @param <T>    the type of the action's result
+   * @param room   name of the room
+   * @param action the action to run; must not block
+   * @return a future that completes with the action's result
+   * @throws IllegalArgumentException   if room or action is null
+   * @throws RejectedExecutionException if the registry has been closed
+   */
+  public <T> CompletableFuture<T> submit(String room, Function<JukeBox, T> action) {
+
+    if (room == null || action == null) {
+      throw new IllegalArgumentException();
+    }
+
+    Shard shard = shardOf(room);
+
+    return CompletableFuture.supplyAsync(() -> action.apply(shard.room(room)), shard.executor);
+
+  }
+
+  /**
+   * Runs an action that has no result on a room's jukebox, like submit.
+   *
+   * @param room   name of the room
+   * @param action the action to run; must not block
+   * @return a future that completes once the action has run
+   * @throws IllegalArgumentException   if room or action is null
+   * @throws RejectedExecutionException if the registry has been closed
+   */
+  public CompletableFuture<Void> execute(String room, Consumer<JukeBox> action) {
+
+    if (action == null) {
+      throw new IllegalArgumentException();
+    }
+
+    return submit(room, jukebox -> {
+      action.accept(jukebox);
+      return null;
+    });
+
+  }
+
+  /**
+   * Removes a room from the registry. Its jukebox is returned as it was and is no longer used by
+   * the registry.
+   *
+   * @param room name of the room
+   * @return a future that completes with the room's jukebox, or null if there was no such room
+   * @throws IllegalArgumentException if room is null
+   */
+  public CompletableFuture<JukeBox> removeRoom(String room) {
+
+    if (room == null) {
+      throw new IllegalArgumentException();
+    }
+
+    Shard shard = shardOf(room);
+
+    return CompletableFuture.supplyAsync(() -> shard.rooms.remove(room), shard.executor);
+
+  }
+
+  /**
+   * Counts the rooms in the registry, across all shards in parallel.
+   *
+   * @return a future that completes with the number of rooms
+   */
+  public CompletableFuture<Integer> roomCount() {
+
+    return fanOut(shard -> shard.rooms.size(), Integer::sum);
+
+  }
+
+  /**
+   * Counts the songs queued in all rooms, across all shards in parallel.
+   *
+   * @return a future that completes with the total number of queued songs
+   */
+  public CompletableFuture<Long> totalQueued() {
+
+    return fanOut(shard -> {
+
+      long queued = 0;
+
+      for (JukeBox jukebox : shard.rooms.values()) {
+        queued += jukebox.size();
+      }
+
+      return queued;
+
+    }, Long::sum);
+
+  }
+
+  /**
+   * Finds the rooms in which a song is queued, searching all shards in parallel. Each room is
+   * checked through its jukebox's duplicate index, in constant time.
+   *
+   * @param song the song to look for
+   * @return a future that completes with the names of the rooms queueing song, sorted
+   * @throws IllegalArgumentException if song is null
+   */
+  public CompletableFuture<List<String>> findSong(Song song) {
+
+    if (song == null) {
+      throw new IllegalArgumentException();
+    }
+
+    return fanOut(shard -> {
+
+      ArrayList<String> found = new ArrayList<String>();
+
+      for (Map.Entry<String, JukeBox> room : shard.rooms.entrySet()) {
+
+        if (room.getValue().contains(song)) {
+          found.add(room.getKey());
+        }
+
+      }
+
+      return found;
+
+    }, (a, b) -> {
+
+      a.addAll(b);
+      return a;
+
+    }).thenApply(rooms -> {
+
+      Collections.sort(rooms);
+      return Collections.unmodifiableList(rooms);
+
+    });
+
+  }
+
+  /**
+   * Stops the shard threads once the actions already submitted have run, waiting up to a few
+   * seconds for them. Actions submitted afterwards are rejected.
+   */
+  @Override
+  public void close() {
+
+    for (Shard shard : shards) {
+      shard.executor.shutdown();
+    }
+
+    try {
+
+      for (Shard shard : shards) {
+        shard.executor.awaitTermination(5, TimeUnit.SECONDS);
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+  }
+
+  /**
+   * Runs a query on every shard at once and merges the partial results as they arrive.
+   *
+   * @param <T>   the type of the partial and merged results
+   * @param query computes one shard's partial result, on the shard's thread
+   * @param merge combines two partial results
+   * @return a future that completes with the merged result
+   */
+  private <T> CompletableFuture<T> fanOut(Function<Shard, T> query, BinaryOperator<T> merge) {
+
+    CompletableFuture<T> result = null;
+
+    for (Shard shard : shards) {
+
+      CompletableFuture<T> partial =
+          CompletableFuture.supplyAsync(() -> query.apply(shard), shard.executor);
+
+      result = result == null ? partial : result.thenCombine(partial, merge);
+
+    }
+
+    return result;
+
+  }
+
+  /**
+   * Returns the shard a room belongs to.
+   *
+   * @param room name of the room
+   * @return the room's shard
+   */
+  private Shard shardOf(String room) {
+
+    // Spread the high bits, since room names often differ only in a trailing number
+
+    int hash = room.hashCode();
+
+    return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+
+  }
+
+  /**
+   * A shard: a single thread and the rooms it owns. The map of rooms is only read and written on
+   * the shard's thread, so it needs no lock.
+   */
+  private class Shard {
+
+    private final ExecutorService executor; // The shard's single thread
+
+    private final HashMap<String, JukeBox> rooms = new HashMap<String, JukeBox>(); // Rooms by name
+
+    /**
+     * Creates a shard and starts its thread.
+     *
+     * @param name name of the shard's thread
+     */
+    private Shard(String name) {
+
+      executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+
+    }
+
+    /**
+     * Returns the jukebox of a room, creating the room if needed. Must run on the shard's thread.
+     *
+     * @param room name of the room
+     * @return the room's jukebox
+     */
+    private JukeBox room(String room) {
+
+      return rooms.computeIfAbsent(room, roomFactory);
+
+    }
+  }
+}
@@ -1,6 +1,23 @@
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Tester class for testing the functionality of the LinkedQueue, LinkedStack, Album, Song, and
@@ -353,14 +370,1766 @@ public class JukeBoxTester {
     jukebox.addSongToQueue(song2);
     jukebox.addSongToQueue(song3);
 
+    // A shuffle of three songs keeps their order one time in six, so allow a few tries before
+    // deciding the queue is never reordered
     String beforeShuffle = jukebox.toString();
-    jukebox.shuffleSongQueue();
-    String afterShuffle = jukebox.toString();
+    String afterShuffle = beforeShuffle;
+
+    for (int i = 0; i < 20 && beforeShuffle.equals(afterShuffle); i++) {
+      jukebox.shuffleSongQueue();
+      afterShuffle = jukebox.toString();
+    }
 
     return !beforeShuffle.equals(afterShuffle) && jukebox.size() == 3;
 
   }
 
+  /**
+   * Tests that the jukebox rejects songs that only differ in case from a queued song, and that a
+   * song can be queued again once it has been played.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testJukeboxDuplicateIndex() {
+
+    JukeBox jukebox = new JukeBox(3);
+
+    Song song1 = new Song("Song1", "Artist1");
+    Song song1Upper = new Song("SONG1", "artist1");
+
+    jukebox.addSongToQueue(song1);
+
+    // Test case-insensitive duplicate
+    try {
+      jukebox.addSongToQueue(song1Upper);
+      return false; // Should have thrown exception
+    } catch (IllegalArgumentException e) {
+      // Expected behavior
+    }
+
+    if (song1.hashCode() != song1Upper.hashCode())
+      return false;
+
+    jukebox.playSong();
+    jukebox.addSongToQueue(song1Upper);
+
+    return jukebox.size() == 1;
+
+  }
+
+  /**
+   * Tests that songs with the same case-insensitive identity have equal keys, and that moving a
+   * song to an album refreshes its key.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testSongKey() {
+
+    Song song1 = new Song("Song1", "Artist1");
+    Song song1Upper = new Song("SONG1", "ARTIST1");
+
+    if (!song1.getKey().equals(song1Upper.getKey()) || !song1.equals(song1Upper))
+      return false;
+
+    Album album = new Album("Test Album");
+    album.addSong(song1);
+
+    // Different album now, so the songs no longer match
+    if (song1.equals(song1Upper) || song1.getKey().equals(song1Upper.getKey()))
+      return false;
+
+    song1Upper.setAlbum(new Album("TEST ALBUM"));
+
+    return song1.getKey().equals(song1Upper.getKey()) && song1.equals(song1Upper)
+        && song1.hashCode() == song1Upper.hashCode();
+
+  }
+
+  /**
+   * Tests that the album's track index rejects duplicates regardless of album size, forgets songs
+   * once they are removed, even after they moved to another album, and stays in step with equal
+   * songs added twice.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testAlbumTrackIndex() {
+
+    Album album = new Album("Test Album");
+
+    for (int i = 0; i < 1000; i++) {
+      album.addSong(new Song("Song" + i, "Artist"));
+    }
+
+    Song top = album.firstSong();
+
+    // Test duplicate of an indexed song
+    try {
+      album.addSong(top);
+      return false; // Should have thrown exception
+    } catch (IllegalArgumentException e) {
+      // Expected behavior
+    }
+
+    Song removed = album.removeSong();
+    album.addSong(removed);
+
+    if (album.size() != 1000 || album.firstSong() != removed)
+      return false;
+
+    // Two equal fresh songs are both accepted, and removing one keeps the other indexed
+    for (Album equals : new Album[] {new Album("Equal Album"),
+        new Album("Equal Album", new ConcurrentLinkedStack<Song>())}) {
+
+      Song x = new Song("Twin", "Artist");
+      equals.addSong(x);
+      equals.addSong(new Song("Twin", "Artist"));
+      equals.removeSong();
+
+      try {
+        equals.addSong(x);
+        return false;
+      } catch (IllegalArgumentException e) {
+        // Expected behavior
+      }
+
+      if (equals.size() != 1)
+        return false;
+
+    }
+
+    // A track that moved to another album is forgotten under the identity it was added with
+    Album left = new Album("Left");
+    Song mover = new Song("Mover", "Artist");
+    left.addSong(mover);
+    new Album("Other").addSong(mover);
+    left.removeSong();
+
+    Song twin = new Song("Mover", "Artist");
+    new Album("Left").addSong(twin);
+
+    try {
+      left.addSong(twin);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+
+    return true;
+
+  }
+
+  /**
+   * Tests the ring-buffer queue through wrap-around and growth, and a jukebox running on it.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testArrayQueue() {
+
+    ArrayQueue<Integer> queue = new ArrayQueue<>(3);
+
+    queue.enqueue(1);
+    queue.enqueue(2);
+    queue.dequeue();
+    queue.enqueue(3);
+    queue.enqueue(4); // Wraps around the end of the array
+    queue.enqueue(5); // Forces the array to grow
+
+    ArrayList<Integer> list = queue.getList();
+    if (list.size() != 4 || list.get(0) != 2 || list.get(3) != 5 || !queue.contains(4))
+      return false;
+
+    queue.clear();
+    if (!queue.isEmpty() || queue.dequeue() != null)
+      return false;
+
+    JukeBox jukebox = new JukeBox(2, new ArrayQueue<Song>(2));
+
+    Song song1 = new Song("Song1", "Artist1");
+    Song song2 = new Song("Song2", "Artist2");
+
+    jukebox.addSongToQueue(song1);
+    jukebox.addSongToQueue(song2);
+
+    return jukebox.isFull() && jukebox.playSong().equals(song1) && jukebox.size() == 1;
+
+  }
+
+  /**
+   * Tests the array-backed stack through growth, indexed access and trimming, and an album running
+   * on it.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testArrayStack() {
+
+    ArrayStack<Integer> stack = new ArrayStack<>(1);
+
+    for (int i = 1; i <= 5; i++) {
+      stack.push(i);
+    }
+
+    if (stack.size() != 5 || stack.peek() != 5 || stack.get(0) != 5 || stack.get(4) != 1)
+      return false;
+
+    stack.pop();
+    stack.trimToSize();
+    stack.push(6);
+
+    ArrayList<Integer> list = stack.getList();
+    if (list.get(0) != 6 || list.get(1) != 4 || list.size() != 5 || stack.contains(5))
+      return false;
+
+    Album album = new Album("Test Album", new ArrayStack<Song>());
+
+    Song song1 = new Song("Song1", "Artist1");
+    Song song2 = new Song("Song2", "Artist2");
+
+    album.addSong(song1);
+    album.addSong(song2);
+
+    String expected = "Test Album\n" + song2.toString() + "\n" + song1.toString();
+
+    return album.toString().equals(expected) && album.removeSong().equals(song2);
+
+  }
+
+  /**
+   * Tests in-place iteration over the linked stack and queue, the size reported by their
+   * spliterators, and that iterators fail fast after a modification.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testIteration() {
+
+    LinkedStack<Integer> stack = new LinkedStack<>();
+    LinkedQueue<Integer> queue = new LinkedQueue<>();
+
+    for (int i = 1; i <= 3; i++) {
+      stack.push(i);
+      queue.enqueue(i);
+    }
+
+    // Stack iterates top to bottom, queue front to back
+    int expected = 3;
+    for (int value : stack) {
+      if (value != expected--)
+        return false;
+    }
+
+    expected = 1;
+    for (int value : queue) {
+      if (value != expected++)
+        return false;
+    }
+
+    if (stack.spliterator().getExactSizeIfKnown() != 3
+        || queue.spliterator().getExactSizeIfKnown() != 3)
+      return false;
+
+    Iterator<Integer> iterator = queue.iterator();
+    iterator.next();
+    queue.dequeue();
+
+    // Test fail-fast behavior
+    try {
+      iterator.next();
+      return false; // Should have thrown exception
+    } catch (ConcurrentModificationException e) {
+      // Expected behavior
+    }
+
+    return stack.size() == 3 && queue.size() == 2;
+
+  }
+
+  /**
+   * Tests that shuffling with a seeded generator is reproducible across queue implementations and
+   * that every permutation of a small queue comes up about equally often.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testSeededShuffle() {
+
+    JukeBox linked = new JukeBox(5);
+    JukeBox array = new JukeBox(5, new ArrayQueue<Song>(5));
+
+    for (int i = 0; i < 5; i++) {
+      Song song = new Song("Song" + i, "Artist");
+      linked.addSongToQueue(song);
+      array.addSongToQueue(song);
+    }
+
+    linked.shuffleSongQueue(new SplittableRandom(42));
+    array.shuffleSongQueue(new SplittableRandom(42));
+
+    if (!linked.toString().equals(array.toString()) || linked.size() != 5)
+      return false;
+
+    // Count how often each ordering of three elements appears
+    LinkedQueue<Integer> queue = new LinkedQueue<>();
+    queue.enqueue(1);
+    queue.enqueue(2);
+    queue.enqueue(3);
+
+    SplittableRandom random = new SplittableRandom(7);
+    HashMap<String, Integer> counts = new HashMap<>();
+
+    for (int i = 0; i < 6000; i++) {
+      queue.shuffle(random);
+      counts.merge(queue.getList().toString(), 1, Integer::sum);
+    }
+
+    for (int count : counts.values()) {
+      if (count < 850 || count > 1150)
+        return false;
+    }
+
+    return counts.size() == 6;
+
+  }
+
+  /**
+   * Tests the concurrent jukebox with several producer threads racing on the same songs and on the
+   * last free slots, while the main thread plays songs.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testConcurrentJukeBox() {
+
+    ConcurrentJukeBox jukebox = new ConcurrentJukeBox(500);
+
+    Song[] songs = new Song[1000];
+    for (int i = 0; i < songs.length; i++) {
+      songs[i] = new Song("Song" + i, "Artist");
+    }
+
+    // Every thread tries to add every song, so each song is contended by all producers
+    Thread[] producers = new Thread[4];
+    for (int t = 0; t < producers.length; t++) {
+      producers[t] = new Thread(() -> {
+        for (Song song : songs) {
+          try {
+            jukebox.addSongToQueue(song);
+          } catch (IllegalStateException | IllegalArgumentException e) {
+            continue;
+          }
+        }
+      });
+      producers[t].start();
+    }
+
+    try {
+      for (Thread producer : producers) {
+        producer.join();
+      }
+    } catch (InterruptedException e) {
+      return false;
+    }
+
+    if (jukebox.size() != 500 || !jukebox.isFull())
+      return false;
+
+    // Every queued song must be distinct
+    HashMap<Song, Integer> played = new HashMap<>();
+    while (!jukebox.isEmpty()) {
+      played.merge(jukebox.playSong(), 1, Integer::sum);
+    }
+
+    try {
+      jukebox.playSong();
+      return false; // Should have thrown exception
+    } catch (NoSuchElementException e) {
+      // Expected behavior
+    }
+
+    if (played.size() != 500 || jukebox.size() != 0)
+      return false;
+
+    // Duplicates turned away in flight never take the last slot from a distinct song
+    AtomicReference<ConcurrentJukeBox> lastSlot = new AtomicReference<>();
+    AtomicBoolean stop = new AtomicBoolean();
+    Thread duplicates = new Thread(() -> {
+      while (!stop.get()) {
+        try {
+          lastSlot.get().addSongToQueue(songs[0]);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+          continue;
+        }
+      }
+    });
+
+    try {
+
+      for (int i = 0; i < 20000; i++) {
+
+        ConcurrentJukeBox box = new ConcurrentJukeBox(2);
+        box.addSongToQueue(songs[0]);
+        lastSlot.set(box);
+
+        if (i == 0)
+          duplicates.start();
+
+        box.addSongToQueue(songs[1]);
+
+      }
+
+    } catch (IllegalStateException e) {
+      return false;
+    } finally {
+      stop.set(true);
+    }
+
+    try {
+      duplicates.join();
+    } catch (InterruptedException e) {
+      return false;
+    }
+
+    // An album is queued oldest first, filling past duplicates until no slot is left
+    ConcurrentJukeBox albumBox = new ConcurrentJukeBox(2);
+    Album album = new Album("Test Album");
+    album.addSong(songs[0]);
+    album.addSong(songs[1]);
+    album.addSong(songs[2]);
+    albumBox.addSongToQueue(songs[0]);
+    albumBox.addAlbumToQueue(album);
+
+    return albumBox.playSong() == songs[0] && albumBox.playSong() == songs[1]
+        && albumBox.isEmpty() && album.size() == 0;
+
+  }
+
+  /**
+   * Tests the blocking jukebox operations: timed offer and poll give up when full or empty, and a
+   * producer blocked in put is released once the player takes a song.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testBlockingJukeBox() {
+
+    JukeBox jukebox = new JukeBox(1);
+
+    Song song1 = new Song("Song1", "Artist1");
+    Song song2 = new Song("Song2", "Artist2");
+
+    try {
+
+      if (jukebox.poll(10, TimeUnit.MILLISECONDS) != null)
+        return false;
+
+      jukebox.put(song1);
+
+      if (jukebox.offer(song2, 10, TimeUnit.MILLISECONDS))
+        return false;
+
+      // The producer has to wait until the player frees the only slot
+      Thread producer = new Thread(() -> {
+        try {
+          jukebox.put(song2);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      producer.start();
+
+      Song first = jukebox.take();
+      Song second = jukebox.poll(5, TimeUnit.SECONDS);
+      producer.join();
+
+      return first == song1 && second == song2 && jukebox.isEmpty();
+
+    } catch (InterruptedException e) {
+      return false;
+    }
+
+  }
+
+  /**
+   * Tests adding a batch of songs and an album to the jukebox, with duplicates against the queue,
+   * duplicates within the batch and songs that do not fit.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testBatchEnqueue() {
+
+    JukeBox jukebox = new JukeBox(4, new ArrayQueue<Song>(1));
+
+    Song song1 = new Song("Song1", "Artist1");
+    Song song2 = new Song("Song2", "Artist2");
+    Song song3 = new Song("Song3", "Artist3");
+    Song song4 = new Song("Song4", "Artist4");
+    Song song5 = new Song("Song5", "Artist5");
+
+    jukebox.addSongToQueue(song1);
+
+    ArrayList<Song> batch = new ArrayList<>();
+    batch.add(song1); // Already queued
+    batch.add(song2);
+    batch.add(new Song("SONG2", "ARTIST2")); // Repeated within the batch
+    batch.add(song3);
+    batch.add(song4);
+    batch.add(song5); // No room left
+
+    EnqueueResult result = jukebox.addAll(batch);
+
+    if (result.getAccepted().size() != 3 || result.getRejected().size() != 3
+        || result.getAccepted().get(0) != song2 || !jukebox.isFull())
+      return false;
+
+    String expected = song1 + " -> " + song2 + " -> " + song3 + " -> " + song4 + " -> END";
+    if (!jukebox.toString().equals(expected))
+      return false;
+
+    // Album songs come out oldest first, as addAlbumToQueue always queued them: the whole album
+    // is taken, and what no longer fits is rejected
+    JukeBox albumBox = new JukeBox(2);
+    Album album = new Album("Test Album");
+    album.addSong(song1);
+    album.addSong(song2);
+    album.addSong(song3);
+
+    result = albumBox.addAll(album);
+
+    if (result.getAccepted().size() != 2 || result.getRejected().get(0) != song3
+        || albumBox.playSong() != song1 || album.size() != 0)
+      return false;
+
+    // A duplicate does not take a slot, so the next song fills it
+    albumBox.clear();
+    albumBox.addSongToQueue(song1);
+    album.addSong(song1);
+    album.addSong(song2);
+    album.addSong(song3);
+
+    result = albumBox.addAll(album);
+
+    return result.getAccepted().size() == 1 && result.getAccepted().get(0) == song2
+        && albumBox.isFull() && album.size() == 0;
+
+  }
+
+  /**
+   * Tests several curator threads adding to and removing from an album backed by the lock-free
+   * stack at the same time, including threads racing to add the same songs twice.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testConcurrentAlbum() {
+
+    Album album = new Album("Test Album", new ConcurrentLinkedStack<Song>());
+
+    Song[] songs = new Song[2000];
+    for (int i = 0; i < songs.length; i++) {
+      songs[i] = new Song("Song" + i, "Artist");
+      songs[i].setAlbum(album); // Same identity as in the album, so re-adding is a duplicate
+    }
+
+    Thread[] curators = new Thread[4];
+    for (int t = 0; t < curators.length; t++) {
+      curators[t] = new Thread(() -> {
+        for (Song song : songs) {
+          try {
+            album.addSong(song);
+          } catch (IllegalArgumentException e) {
+            continue;
+          }
+        }
+      });
+      curators[t].start();
+    }
+
+    try {
+      for (Thread curator : curators) {
+        curator.join();
+      }
+    } catch (InterruptedException e) {
+      return false;
+    }
+
+    if (album.size() != songs.length)
+      return false;
+
+    // Drain the album from several threads and count what comes out
+    HashMap<Song, Integer> removed = new HashMap<>();
+    Thread[] removers = new Thread[4];
+    for (int t = 0; t < removers.length; t++) {
+      removers[t] = new Thread(() -> {
+        ArrayList<Song> mine = new ArrayList<>();
+        while (true) {
+          try {
+            mine.add(album.removeSong());
+          } catch (NoSuchElementException e) {
+            break;
+          }
+        }
+        synchronized (removed) {
+          for (Song song : mine) {
+            removed.merge(song, 1, Integer::sum);
+          }
+        }
+      });
+      removers[t].start();
+    }
+
+    try {
+      for (Thread remover : removers) {
+        remover.join();
+      }
+    } catch (InterruptedException e) {
+      return false;
+    }
+
+    return removed.size() == songs.length && album.size() == 0 && album.firstSong() == null;
+
+  }
+
+  /**
+   * Tests that the node pool reuses released nodes up to its bound and clears their data, and that
+   * queues and stacks that recycle nodes keep their ordering across fill and drain cycles.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testNodePooling() {
+
+    LinkedNodePool<Integer> pool = new LinkedNodePool<>(1);
+
+    LinkedNode<Integer> node1 = pool.acquire(1);
+    LinkedNode<Integer> node2 = pool.acquire(2);
+
+    // Only one idle node fits in the pool
+    if (!pool.release(node1) || pool.release(node2) || node1.getData() != null)
+      return false;
+
+    if (pool.acquire(3) != node1 || node1.getData() != 3 || pool.size() != 0)
+      return false;
+
+    LinkedQueue<Integer> queue = LinkedQueue.pooled(4);
+    LinkedStack<Integer> stack = LinkedStack.pooled(4);
+
+    for (int cycle = 0; cycle < 3; cycle++) {
+
+      for (int i = 1; i <= 3; i++) {
+        queue.enqueue(cycle * 10 + i);
+        stack.push(cycle * 10 + i);
+      }
+
+      if (queue.dequeue() != cycle * 10 + 1 || stack.pop() != cycle * 10 + 3)
+        return false;
+
+      Iterator<Integer> iterator = queue.iterator();
+      queue.dequeue();
+
+      // The dequeued node is back in the pool, so the iterator must not follow it
+      try {
+        iterator.next();
+        return false; // Should have thrown exception
+      } catch (ConcurrentModificationException e) {
+        // Expected behavior
+      }
+
+      queue.clear();
+      while (!stack.isEmpty()) {
+        stack.pop();
+      }
+
+    }
+
+    return queue.isEmpty() && stack.isEmpty();
+
+  }
+
+  /**
+   * Tests the unrolled queue across chunk boundaries, after draining, and through a shuffle, and a
+   * jukebox running on it.
+   * 
+   * @return true if it passes all test cases, false otherwise
+   */
+  public static boolean testUnrolledLinkedQueue() {
+
+    UnrolledLinkedQueue<Integer> queue = new UnrolledLinkedQueue<>(3);
+
+    for (int i = 1; i <= 10; i++) {
+      queue.enqueue(i);
+    }
+
+    // Removes the whole first chunk and part of the second
+    for (int i = 1; i <= 4; i++) {
+      if (queue.dequeue() != i)
+        return false;
+    }
+
+    ArrayList<Integer> list = queue.getList();
+    if (list.size() != 6 || list.get(0) != 5 || list.get(5) != 10 || queue.peek() != 5)
+      return false;
+
+    queue.shuffle(new SplittableRandom(1));
+
+    int sum = 0;
+    for (int value : queue) {
+      sum += value;
+    }
+
+    if (sum != 5 + 6 + 7 + 8 + 9 + 10 || queue.size() != 6)
+      return false;
+
+    while (!queue.isEmpty()) {
+      queue.dequeue();
+    }
+
+    queue.enqueue(11);
+    if (queue.peek() != 11 || queue.dequeue() != 11 || queue.dequeue() != null)
+      return false;
+
+    JukeBox jukebox = new JukeBox(5, new UnrolledLinkedQueue<Song>(2));
+
+    for (int i = 0; i < 5; i++) {
+      jukebox.addSongToQueue(new Song("Song" + i, "Artist"));
+    }
+
+    return jukebox.isFull() && jukebox.playSong().equals(new Song("Song0", "Artist"));
+
+  }
+
+  /**
+   * Tests that a persistent jukebox recovers its exact queue from the journal and snapshot,
+   * ignores a torn record at the end of the journal, and loses no change when a snapshot fails. A
+   * change that cannot be journalled, or that follows a failed snapshot, leaves the queue alone.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testQueueJournal() {
+
+    try {
+
+      Path directory = Files.createTempDirectory("jukebox-journal");
+
+      // Snapshot every 4 changes, so recovery uses both the snapshot and the journal
+      QueueJournal journal = new QueueJournal(directory, 5, 4);
+      JukeBox jukebox = JukeBox.recover(10, new LinkedQueue<Song>(), journal);
+
+      Album album = new Album("Abbey Road");
+      album.addSong(new Song("Something", "The Beatles"));
+
+      jukebox.addSongToQueue(new Song("Song0", "Artist"));
+      jukebox.addAlbumToQueue(album);
+      jukebox.clear();
+
+      for (int i = 1; i <= 6; i++) {
+        jukebox.addSongToQueue(new Song("Song" + i, "Artist"));
+      }
+
+      jukebox.addAll(new Album("Empty"));
+      album.addSong(new Song("Come Together", "The Beatles"));
+      jukebox.addAlbumToQueue(album);
+      jukebox.playSong();
+      jukebox.shuffleSongQueue(new SplittableRandom(7));
+      jukebox.playSong();
+
+      String expected = jukebox.toString();
+      journal.close();
+
+      // A record cut short by a crash is dropped on recovery
+      Files.write(directory.resolve("queue.journal"), new byte[] {0, 0, 0, 20, 1, 2},
+          StandardOpenOption.APPEND);
+
+      QueueJournal reopened = new QueueJournal(directory);
+      JukeBox recovered = JukeBox.recover(10, new ArrayQueue<Song>(), reopened);
+
+      if (!recovered.toString().equals(expected) || recovered.size() != 5)
+        return false;
+
+      // Duplicates are still detected, and new changes are journalled after the recovered ones
+      Song duplicate = new Song("come together", "the beatles");
+      duplicate.setAlbum(new Album("abbey road"));
+
+      try {
+        recovered.addSongToQueue(duplicate);
+        return false;
+      } catch (IllegalArgumentException e) {
+        // expected, the recovered song keeps its album
+      } catch (Exception e) {
+        return false;
+      }
+
+      recovered.addSongToQueue(new Song("Song7", "Artist"));
+      recovered.playSong();
+      reopened.sync();
+      expected = recovered.toString();
+      reopened.close();
+
+      QueueJournal last = new QueueJournal(directory);
+      boolean matches = JukeBox.recover(10, new LinkedQueue<Song>(), last).toString()
+          .equals(expected);
+      last.close();
+
+      if (!matches)
+        return false;
+
+      // A snapshot that fails keeps the records it would have covered, so they are still written
+      Path failing = Files.createTempDirectory("jukebox-journal");
+      QueueJournal slow = new QueueJournal(failing, 60000, 1000);
+      JukeBox unsynced = JukeBox.recover(10, new LinkedQueue<Song>(), slow);
+      unsynced.addSongToQueue(new Song("Song1", "Artist"));
+      unsynced.addSongToQueue(new Song("Song2", "Artist"));
+      expected = unsynced.toString();
+
+      Path blocked = Files.createDirectory(failing.resolve("queue.snapshot.tmp"));
+
+      try {
+        slow.snapshot(new LinkedQueue<Song>());
+        return false;
+      } catch (IOException e) {
+        // expected, the temporary file cannot be created
+      }
+
+      Files.delete(blocked);
+      slow.close();
+
+      QueueJournal afterFailure = new QueueJournal(failing);
+      matches = JukeBox.recover(10, new LinkedQueue<Song>(), afterFailure).toString()
+          .equals(expected);
+      afterFailure.close();
+
+      if (!matches)
+        return false;
+
+      // A change that cannot be journalled is turned away before the queue is touched
+      Path limits = Files.createTempDirectory("jukebox-journal");
+      QueueJournal strict = new QueueJournal(limits, 5, 2);
+      JukeBox guarded = JukeBox.recover(10, new LinkedQueue<Song>(), strict);
+      Song huge = new Song("x".repeat(70000), "Artist");
+
+      try {
+        guarded.addSongToQueue(huge);
+        return false;
+      } catch (UncheckedIOException e) {
+        // expected, the name is too long for a record
+      }
+
+      if (!guarded.isEmpty() || guarded.addAll(List.of(huge, new Song("Song1", "Artist")))
+          .getRejected().get(0) != huge || guarded.size() != 1)
+        return false;
+
+      // A snapshot that fails in the background does not fail the change that made it due, but
+      // stops every later change before it is made
+      Path stuck = Files.createDirectory(limits.resolve("queue.snapshot.tmp"));
+      guarded.addSongToQueue(new Song("Song2", "Artist"));
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      boolean stopped = false;
+
+      while (!stopped && System.nanoTime() < deadline) {
+
+        try {
+          guarded.addSongToQueue(new Song("Song1", "Artist"));
+          return false;
+        } catch (IllegalArgumentException e) {
+          Thread.sleep(1); // the snapshot has not been tried yet, and the song is a duplicate
+        } catch (UncheckedIOException e) {
+          stopped = true;
+        }
+
+      }
+
+      if (!stopped || guarded.size() != 2)
+        return false;
+
+      Files.delete(stuck);
+
+      try {
+        strict.close();
+        return false;
+      } catch (IOException e) {
+        return true;
+      }
+
+    } catch (IOException | InterruptedException e) {
+      return false;
+    }
+
+  }
+
+  /**
+   * Tests writing albums to a catalog file and materializing them again from the mapped file.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testCatalog() {
+
+    try {
+
+      Album abbeyRoad = new Album("Abbey Road");
+      abbeyRoad.addSong(new Song("Come Together", "The Beatles"));
+      abbeyRoad.addSong(new Song("Something", "The Beatles"));
+      abbeyRoad.addSong(new Song("Octopus's Garden", "The Beatles"));
+
+      Album bad = new Album("Bad");
+      bad.addSong(new Song("Smooth Criminal", "Michael Jackson"));
+
+      Album empty = new Album("\u00c9coute");
+
+      Path file = Files.createTempFile("jukebox", ".catalog");
+      Catalog.write(file, List.of(bad, abbeyRoad, empty));
+
+      // Writing leaves the albums unchanged
+      if (abbeyRoad.size() != 3 || bad.size() != 1)
+        return false;
+
+      Catalog catalog = new Catalog(file);
+
+      // Albums are sorted by name, ignoring case
+      if (catalog.albumCount() != 3 || catalog.songCount() != 4
+          || !catalog.albumName(0).equals("Abbey Road") || catalog.albumSize(2) != 0)
+        return false;
+
+      if (catalog.indexOf("BAD") != 1 || catalog.indexOf("\u00e9coute") != 2
+          || catalog.indexOf("Thriller") != -1 || catalog.findAlbum("Thriller") != null)
+        return false;
+
+      // A materialized album equals the original, song for song and in the same order
+      Album copy = catalog.findAlbum("abbey road");
+      if (!copy.toString().equals(abbeyRoad.toString()) || copy.size() != 3)
+        return false;
+
+      if (!copy.removeSong().equals(abbeyRoad.removeSong()))
+        return false;
+
+      // Songs belong to the materialized album
+      if (copy.firstSong().getAlbum() != copy)
+        return false;
+
+      // Each call builds a fresh album
+      JukeBox jukebox = new JukeBox(5);
+      jukebox.addAlbumToQueue(catalog.album(0));
+
+      Files.delete(file);
+
+      return jukebox.size() == 3 && catalog.album(0).size() == 3;
+
+    } catch (IOException e) {
+      return false;
+    }
+
+  }
+
+  /**
+   * Tests importing CSV and JSON Lines dumps into albums, including rejected rows.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testCatalogImporter() {
+
+    try {
+
+      // Header in a different column order, quoted fields, and invalid rows
+      String csv = "Artist,Name,Album\n"
+          + "The Beatles,Come Together,Abbey Road\n"
+          + "Michael Jackson,Bad,Bad\n"
+          + "The Beatles,\"Octopus's Garden, Part 1\",ABBEY ROAD\n"
+          + "\n"
+          + "The Beatles,Come Together,abbey road\n"
+          + "   ,Blank Artist,Bad\n"
+          + "Too,Short\n"
+          + "Broken,\"Quote,Bad\n"
+          + "\"Say \"\"Hi\"\"\",Greeting,Bad\n";
+
+      ImportResult result = new CatalogImporter(2).importCsv(new StringReader(csv));
+
+      if (result.getAlbums().size() != 2 || result.getImported() != 4
+          || result.getRejected() != 4)
+        return false;
+
+      Album abbeyRoad = result.getAlbums().get(0);
+      Album bad = result.getAlbums().get(1);
+
+      // Songs are in row order, so the last row is on top
+      if (!abbeyRoad.getAlbumName().equals("Abbey Road") || abbeyRoad.size() != 2
+          || !abbeyRoad.firstSong().toString()
+              .equals("Octopus's Garden, Part 1: The Beatles (Abbey Road)"))
+        return false;
+
+      if (!bad.firstSong().toString().equals("Greeting: Say \"Hi\" (Bad)"))
+        return false;
+
+      // More rows than one batch, parsed by several threads, keep their order
+      StringBuilder jsonl = new StringBuilder();
+
+      for (int i = 0; i < 10000; i++) {
+        jsonl.append("{\"name\": \"Song").append(i).append("\", \"year\": [1, {\"a\": \"}\"}], ")
+            .append("\"artist\": \"Art\\u0069st\", \"album\": \"Album").append(i % 3)
+            .append("\"}\n");
+      }
+
+      jsonl.append("{\"name\": \"No Album\", \"artist\": \"Artist\"}\n");
+      jsonl.append("{\"name\": \"Number\", \"artist\": \"Artist\", \"album\": 5}\n");
+      jsonl.append("not json\n");
+
+      result = new CatalogImporter(4).importJsonLines(new StringReader(jsonl.toString()));
+
+      if (result.getImported() != 10000 || result.getRejected() != 3
+          || result.getAlbums().size() != 3)
+        return false;
+
+      Album album = result.getAlbums().get(1);
+
+      for (int i = 9997; i >= 0; i -= 3) {
+        if (!album.removeSong().toString().equals("Song" + i + ": Artist (Album1)"))
+          return false;
+      }
+
+      return album.size() == 0;
+
+    } catch (IOException | InterruptedException e) {
+      return false;
+    }
+
+  }
+
+  /**
+   * Tests that artist and album names are pooled, so equal names are stored once and names equal
+   * ignoring case share one folded form.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testNamePool() {
+
+    // Separate but equal strings come back as one shared instance
+    Song song1 = new Song("Song1", new String("The Beatles"));
+    Song song2 = new Song("Song2", new String("The Beatles"));
+
+    if (song1.getArtist() != song2.getArtist() || !song1.getArtist().equals("The Beatles"))
+      return false;
+
+    Album album1 = new Album(new String("Abbey Road"));
+    Album album2 = new Album(new String("Abbey Road"));
+    Album album3 = new Album("ABBEY ROAD");
+
+    if (album1.getAlbumName() != album2.getAlbumName()
+        || !album3.getAlbumName().equals("ABBEY ROAD"))
+      return false;
+
+    // Names equal ignoring case share their folded form
+    if (Name.of("THE BEATLES").folded() != song1.getArtistName().folded()
+        || Name.of("the beatles").folded() != Name.of("the beatles"))
+      return false;
+
+    album1.addSong(song1);
+    Song copy = new Song("SONG1", "the beatles");
+    copy.setAlbum(album3);
+
+    return song1.equals(copy) && song1.hashCode() == copy.hashCode() && !song1.equals(song2);
+
+  }
+
+  /**
+   * Tests that the cached renderings of songs, albums and the jukebox follow every change, and
+   * that renderTo writes the same format with an optional limit.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testCachedRendering() {
+
+    try {
+
+      Song song = new Song("Song1", "Artist");
+      if (!song.toString().equals("Song1: Artist ()"))
+        return false;
+
+      Album album = new Album("Album");
+      album.addSong(song);
+
+      // Moving a song to an album changes its rendering
+      if (song.toString() != song.toString() || !song.toString().equals("Song1: Artist (Album)"))
+        return false;
+
+      album.addSong(new Song("Song2", "Artist"));
+      String rendered = album.toString();
+
+      if (rendered != album.toString()
+          || !rendered.equals("Album\nSong2: Artist (Album)\nSong1: Artist (Album)"))
+        return false;
+
+      StringBuilder limited = new StringBuilder();
+      album.renderTo(limited, 1);
+
+      if (!limited.toString().equals("Album\nSong2: Artist (Album)\n..."))
+        return false;
+
+      album.removeSong();
+      if (!album.toString().equals("Album\nSong1: Artist (Album)"))
+        return false;
+
+      // An album shows a song that moved to another album, even twice, under its new album
+      Album other = new Album("Other");
+      other.addSong(song);
+      album.toString();
+      other.toString();
+      new Album("Third").addSong(song);
+
+      if (!album.toString().equals("Album\nSong1: Artist (Third)")
+          || !other.toString().equals("Other\nSong1: Artist (Third)"))
+        return false;
+
+      // Check the jukebox against a fresh rendering after every kind of change
+      JukeBox jukebox = new JukeBox(100);
+      String expected = "END";
+
+      for (int i = 0; i < 50; i++) {
+
+        if (!jukebox.toString().equals(expected))
+          return false;
+
+        if (i % 3 == 2) {
+          jukebox.playSong();
+        } else {
+          jukebox.addSongToQueue(new Song("Song" + i, "Artist"));
+        }
+
+        if (i == 30) {
+          jukebox.shuffleSongQueue(new SplittableRandom(3));
+        }
+
+        StringBuilder fresh = new StringBuilder();
+        jukebox.renderTo(fresh, Integer.MAX_VALUE);
+        expected = fresh.toString();
+
+      }
+
+      if (!jukebox.toString().equals(expected) || jukebox.toString() != jukebox.toString())
+        return false;
+
+      StringBuilder first = new StringBuilder();
+      jukebox.renderTo(first, 2);
+
+      if (!expected.startsWith(first.substring(0, first.length() - "... -> END".length()))
+          || !first.toString().endsWith(" -> ... -> END"))
+        return false;
+
+      jukebox.clear();
+      return jukebox.toString().equals("END");
+
+    } catch (IOException e) {
+      return false;
+    }
+
+  }
+
+  /**
+   * Tests peek(n), range and stream on every queue implementation and on the jukebox.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testWindowedReads() {
+
+    ArrayList<QueueADT<Integer>> queues = new ArrayList<QueueADT<Integer>>();
+    queues.add(new LinkedQueue<Integer>());
+    queues.add(new ArrayQueue<Integer>(4));
+    queues.add(new UnrolledLinkedQueue<Integer>(3));
+
+    for (QueueADT<Integer> queue : queues) {
+
+      // Move the front away from the start of the array or first chunk
+      for (int i = 0; i < 25; i++) {
+        queue.enqueue(i);
+      }
+
+      for (int i = 0; i < 5; i++) {
+        queue.dequeue();
+      }
+
+      ArrayList<Integer> all = queue.getList();
+
+      if (!queue.peek(3).equals(all.subList(0, 3)) || !queue.peek(100).equals(all))
+        return false;
+
+      if (!queue.range(7, 12).equals(all.subList(7, 12))
+          || !queue.range(18, 30).equals(all.subList(18, 20)) || !queue.range(25, 30).isEmpty()
+          || !queue.range(4, 4).isEmpty())
+        return false;
+
+      if (queue.stream().skip(2).limit(3).mapToInt(Integer::intValue).sum() != 7 + 8 + 9)
+        return false;
+
+      try {
+        queue.range(3, 2);
+        return false;
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+
+    }
+
+    JukeBox jukebox = new JukeBox(100);
+
+    for (int i = 0; i < 20; i++) {
+      jukebox.addSongToQueue(new Song("Song" + i, "Artist"));
+    }
+
+    jukebox.playSong();
+
+    if (!jukebox.peek(2).equals(List.of(new Song("Song1", "Artist"), new Song("Song2", "Artist")))
+        || !jukebox.range(17, 25).equals(List.of(new Song("Song18", "Artist"),
+            new Song("Song19", "Artist"))))
+      return false;
+
+    if (!jukebox.stream().limit(1).findFirst().get().equals(new Song("Song1", "Artist"))
+        || jukebox.stream().count() != 19)
+      return false;
+
+    // A stream started before the queue changed fails fast
+    Iterator<Song> songs = jukebox.stream().iterator();
+    songs.next();
+    jukebox.playSong();
+
+    try {
+      songs.next();
+      return false;
+    } catch (ConcurrentModificationException e) {
+      return true;
+    }
+
+  }
+
+  /**
+   * Tests that PriorityLaneQueue plays higher lanes first and keeps each lane in FIFO order, and
+   * that a jukebox on it can boost songs and recover their lanes from its journal.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testPriorityLanes() {
+
+    PriorityLaneQueue<Integer> queue = new PriorityLaneQueue<Integer>();
+
+    for (int i = 0; i < 10; i++) {
+      queue.enqueue(i, i % 3 == 0 ? 1 : 0);
+    }
+
+    // Lane 1 holds 0, 3, 6 and 9; moving 7 into it sends it to the back of the lane
+    if (!queue.setPriority(7, 1) || queue.setPriority(42, 1) || queue.getPriority(7) != 1)
+      return false;
+
+    if (!queue.getList().equals(List.of(0, 3, 6, 9, 7, 1, 2, 4, 5, 8))
+        || !queue.peek(3).equals(List.of(0, 3, 6)) || !queue.range(4, 6).equals(List.of(7, 1)))
+      return false;
+
+    // Shuffling keeps every song in its lane
+    queue.shuffle(new SplittableRandom(3));
+    ArrayList<Integer> shuffled = queue.getList();
+
+    if (!new HashSet<Integer>(shuffled.subList(0, 5)).equals(Set.of(0, 3, 6, 9, 7)))
+      return false;
+
+    for (int i = 0; i < 10; i++) {
+
+      if (!queue.dequeue().equals(shuffled.get(i)))
+        return false;
+
+    }
+
+    if (queue.dequeue() != null || queue.contains(0))
+      return false;
+
+    try {
+
+      Path directory = Files.createTempDirectory("jukebox-lanes");
+      QueueJournal journal = new QueueJournal(directory, 5, 3);
+      JukeBox jukebox = JukeBox.recover(5, new PriorityLaneQueue<Song>(), journal);
+
+      for (int i = 1; i <= 4; i++) {
+        jukebox.addSongToQueue(new Song("Song" + i, "Artist"));
+      }
+
+      jukebox.setPriority(new Song("song3", "artist"), 2);
+      jukebox.addSongToQueue(new Song("Song5", "Artist"), 1);
+
+      if (!jukebox.toString().equals("Song3: Artist () -> Song5: Artist () -> Song1: Artist () -> "
+          + "Song2: Artist () -> Song4: Artist () -> END"))
+        return false;
+
+      // Capacity and duplicate rules still apply to lanes
+      try {
+        jukebox.addSongToQueue(new Song("Song6", "Artist"), 3);
+        return false;
+      } catch (IllegalStateException e) {
+        // expected
+      }
+
+      jukebox.playSong();
+      jukebox.setPriority(new Song("Song4", "Artist"), 1);
+
+      try {
+        jukebox.addSongToQueue(new Song("Song4", "Artist"), 3);
+        return false;
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+
+      String expected = jukebox.toString();
+      journal.close();
+
+      QueueJournal reopened = new QueueJournal(directory);
+      JukeBox recovered = JukeBox.recover(5, new PriorityLaneQueue<Song>(), reopened);
+      reopened.close();
+
+      if (!recovered.toString().equals(expected))
+        return false;
+
+    } catch (IOException e) {
+      return false;
+    }
+
+    // Lanes need a PriorityLaneQueue
+    try {
+      new JukeBox(5).setPriority(new Song("Song1", "Artist"), 1);
+      return false;
+    } catch (IllegalStateException e) {
+      return e.getMessage() != null;
+    }
+
+  }
+
+  /**
+   * Tests that FairShareQueue takes turns between submitters, and that a jukebox on it stops one
+   * listener's album from starving the others while keeping its capacity and duplicate rules.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testFairShare() {
+
+    FairShareQueue<Integer> queue = new FairShareQueue<Integer>();
+    queue.enqueueAll(List.of(1, 2, 3, 4), "alice");
+    queue.enqueue(10, "bob");
+    queue.enqueue(20);
+    queue.enqueue(11, "bob");
+
+    // Submitters take turns in the order they joined; an emptied one leaves the rotation
+    if (!queue.getList().equals(List.of(1, 10, 20, 2, 11, 3, 4)) || queue.submitters() != 3
+        || !queue.range(3, 5).equals(List.of(2, 11)) || !queue.getSubmitter(11).equals("bob"))
+      return false;
+
+    if (queue.dequeue() != 1 || queue.dequeue() != 10 || queue.dequeue() != 20)
+      return false;
+
+    // A submitter coming back joins at the end of the round
+    queue.enqueue(30, "carol");
+
+    if (!queue.getList().equals(List.of(2, 11, 30, 3, 4)) || queue.submitters() != 3)
+      return false;
+
+    // Shuffling keeps the turns fair
+    queue.shuffle(new SplittableRandom(5));
+    ArrayList<Integer> shuffled = queue.getList();
+
+    if (!shuffled.subList(0, 3).containsAll(List.of(11, 30)))
+      return false;
+
+    for (int i = 0; i < 5; i++) {
+
+      if (!queue.dequeue().equals(shuffled.get(i)))
+        return false;
+
+    }
+
+    if (!queue.isEmpty() || queue.submitters() != 0 || queue.dequeue() != null)
+      return false;
+
+    // The empty name belongs to the default submitter, so no listener can use it
+    try {
+      queue.enqueue(40, "");
+      return false;
+    } catch (IllegalArgumentException e) {
+      // Expected behavior
+    }
+
+    try {
+
+      Path directory = Files.createTempDirectory("jukebox-fair");
+      QueueJournal journal = new QueueJournal(directory, 5, 4);
+      JukeBox jukebox = JukeBox.recover(6, new FairShareQueue<Song>(), journal);
+
+      Album album = new Album("Album");
+
+      for (int i = 1; i <= 5; i++) {
+        album.addSong(new Song("Track" + i, "Artist"));
+      }
+
+      jukebox.addAlbumToQueue(album, "alice");
+      jukebox.addSongToQueue(new Song("Request", "Artist"), "bob");
+
+      if (!jukebox.playSong().getName().equals("Track1")
+          || !jukebox.playSong().getName().equals("Request"))
+        return false;
+
+      // Capacity and duplicates are shared by all submitters
+      Song duplicate = new Song("track2", "artist");
+      duplicate.setAlbum(new Album("album"));
+
+      if (jukebox.addAll(List.of(duplicate, new Song("Other", "Artist"),
+          new Song("More", "Artist"), new Song("Extra", "Artist")), "carol").getRejected()
+          .size() != 2)
+        return false;
+
+      String expected = jukebox.toString();
+      journal.close();
+
+      QueueJournal reopened = new QueueJournal(directory);
+      JukeBox recovered = JukeBox.recover(6, new FairShareQueue<Song>(), reopened);
+      reopened.close();
+
+      if (!recovered.toString().equals(expected) || recovered.size() != 6)
+        return false;
+
+      try {
+        recovered.addSongToQueue(new Song("Nameless", "Artist"), "");
+        return false;
+      } catch (IllegalArgumentException e) {
+        // Expected behavior
+      }
+
+    } catch (IOException e) {
+      return false;
+    }
+
+    // Submitters need a FairShareQueue
+    try {
+      new JukeBox(5).addSongToQueue(new Song("Song1", "Artist"), "alice");
+      return false;
+    } catch (IllegalStateException e) {
+      return e.getMessage() != null;
+    }
+
+  }
+
+  /**
+   * Tests that a sharded registry runs actions on the right room and merges queries across shards.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testJukeBoxRegistry() {
+
+    try (JukeBoxRegistry registry = new JukeBoxRegistry(4, 3)) {
+
+      // Rooms are created on first use and fill up independently
+      for (int room = 0; room < 20; room++) {
+
+        for (int i = 0; i <= room % 4; i++) {
+
+          Song song = new Song("Song" + i, "Artist");
+
+          registry.execute("room" + room, jukebox -> {
+            if (!jukebox.isFull())
+              jukebox.addSongToQueue(song);
+          });
+
+        }
+
+      }
+
+      // 5 rooms each of 1, 2, 3 and 3 songs, since capacity is 3
+      if (registry.roomCount().join() != 20 || registry.totalQueued().join() != 45)
+        return false;
+
+      if (!registry.findSong(new Song("Song3", "Artist")).join().isEmpty()
+          || registry.findSong(new Song("Song2", "Artist")).join().size() != 10
+          || !registry.findSong(new Song("song0", "artist")).join().contains("room19"))
+        return false;
+
+      // A failing action fails its future, and the shard keeps going
+      try {
+        registry.execute("room0", JukeBox::playSong).join();
+        registry.execute("room0", JukeBox::playSong).join();
+        return false;
+      } catch (CompletionException e) {
+        if (!(e.getCause() instanceof NoSuchElementException))
+          return false;
+      }
+
+      JukeBox removed = registry.removeRoom("room1").join();
+
+      return removed != null && removed.size() == 2 && registry.roomCount().join() == 19
+          && registry.submit("room0", JukeBox::size).join() == 0
+          && registry.totalQueued().join() == 42;
+
+    }
+
+  }
+
+  /**
+   * Tests that a jukebox with a repeat window refuses songs played recently, by count and by time.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testRepeatWindow() {
+
+    JukeBox jukebox = new JukeBox(10);
+    jukebox.setRepeatWindow(new RepeatWindow(2));
+
+    for (int i = 1; i <= 3; i++) {
+      jukebox.addSongToQueue(new Song("Song" + i, "Artist"));
+    }
+
+    jukebox.playSong();
+
+    // Song1 just played, so it counts as a duplicate
+    try {
+      jukebox.addSongToQueue(new Song("song1", "artist"));
+      return false;
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    if (jukebox.addAll(List.of(new Song("Song1", "Artist"), new Song("Song4", "Artist")))
+        .getRejected().size() != 1)
+      return false;
+
+    // Two more plays push Song1 out of a window of 2
+    jukebox.playSong();
+    jukebox.playSong();
+    jukebox.addSongToQueue(new Song("Song1", "Artist"));
+
+    // A window by time lets a song back once it is old enough, read from the given clock
+    long[] now = {0};
+    RepeatWindow window = new RepeatWindow(100, 5, TimeUnit.MINUTES, () -> now[0]);
+    window.played(new Song("Song1", "Artist"));
+    now[0] += TimeUnit.MINUTES.toNanos(3);
+    window.played(new Song("Song2", "Artist"));
+    now[0] += TimeUnit.MINUTES.toNanos(3);
+
+    if (window.contains(new Song("Song1", "Artist"))
+        || !window.contains(new Song("Song2", "Artist")) || window.size() != 1)
+      return false;
+
+    // A song played again stays in the window after its earlier play leaves
+    RepeatWindow counted = new RepeatWindow(3);
+    counted.played(new Song("A", "Artist"));
+    counted.played(new Song("B", "Artist"));
+    counted.played(new Song("A", "Artist"));
+    counted.played(new Song("C", "Artist"));
+
+    return counted.contains(new Song("A", "Artist")) && counted.contains(new Song("C", "Artist"))
+        && counted.size() == 3;
+
+  }
+
+  /**
+   * Tests that SongIdQueue stores songs by registry id, and that a jukebox runs on it with the
+   * queue's bit set as its duplicate index and plays the registry's songs.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testSongIdQueue() {
+
+    SongRegistry registry = new SongRegistry();
+    SongIdQueue queue = new SongIdQueue(registry, 2);
+
+    for (int i = 0; i < 5; i++) {
+      queue.enqueue(new Song("Song" + i, "Artist"));
+    }
+
+    // Equal songs share an id, and ids are dense
+    if (registry.idOf(new Song("song3", "artist")) != 3 || registry.size() != 5
+        || registry.find(new Song("Song9", "Artist")) != -1)
+      return false;
+
+    try {
+      queue.enqueue(new Song("SONG1", "ARTIST"));
+      return false;
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    // Wrap the ring around the end of the array
+    queue.dequeue();
+    queue.dequeue();
+    queue.enqueue(new Song("Song0", "Artist"));
+    queue.enqueue(new Song("Song5", "Artist"));
+
+    if (!queue.getList().toString().equals(List.of(new Song("Song2", "Artist"),
+        new Song("Song3", "Artist"), new Song("Song4", "Artist"), new Song("Song0", "Artist"),
+        new Song("Song5", "Artist")).toString()) || !queue.contains(new Song("Song0", "Artist"))
+        || queue.contains(new Song("Song1", "Artist")) || queue.range(1, 3).size() != 2)
+      return false;
+
+    queue.shuffle(new SplittableRandom(11));
+
+    if (queue.size() != 5 || !new HashSet<Song>(queue.getList()).equals(Set.of(
+        new Song("Song0", "Artist"), new Song("Song2", "Artist"), new Song("Song3", "Artist"),
+        new Song("Song4", "Artist"), new Song("Song5", "Artist"))))
+      return false;
+
+    // A jukebox on a shared registry keeps its rules
+    JukeBox jukebox = new JukeBox(3, new SongIdQueue(registry));
+    jukebox.addSongToQueue(new Song("Song1", "Artist"));
+
+    if (jukebox.addAll(List.of(new Song("song1", "artist"), new Song("New", "Artist"),
+        new Song("Song2", "Artist"), new Song("Other", "Artist"))).getRejected().size() != 2)
+      return false;
+
+    if (!jukebox.contains(new Song("New", "Artist")) || jukebox.contains(new Song("X", "Artist")))
+      return false;
+
+    String before = jukebox.toString();
+    jukebox.playSong();
+    jukebox.addSongToQueue(new Song("Song1", "Artist"));
+
+    if (!before.startsWith("Song1: Artist () -> New") || jukebox.size() != 3
+        || !jukebox.toString().endsWith("Song1: Artist () -> END"))
+      return false;
+
+    // Ids looked up once can be queued and checked without touching the registry again
+    SongIdQueue byId = new SongIdQueue(registry);
+    int id = registry.idOf(new Song("Song3", "Artist"));
+    byId.enqueueId(id);
+
+    try {
+      byId.enqueueId(id);
+      return false;
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    if (!byId.containsId(id) || byId.containsId(id + 1) || byId.dequeueId() != id)
+      return false;
+
+    // Played songs are the registry's songs: equal to the ones added, not the same objects
+    JukeBox idBox = new JukeBox(2, new SongIdQueue(registry));
+    Song added = new Song("SONG4", "ARTIST");
+    idBox.addSongToQueue(added);
+    Song played = idBox.playSong();
+
+    return played.equals(added) && played != added && played == registry.song(registry.find(added));
+
+  }
+
+  /**
+   * Tests that moving a queued or played song to an album does not leave stale entries in the
+   * duplicate indexes of the jukeboxes, the priority lanes and submitters, the repeat window or the
+   * song registry.
+   *
+   * @return true if all tests pass
+   */
+  public static boolean testQueuedSongMoved() {
+
+    JukeBox jukebox = new JukeBox(5);
+    Song song = new Song("Song1", "Artist1");
+    jukebox.addSongToQueue(song);
+    jukebox.toString();
+
+    new Album("Album1").addSong(song);
+
+    // The moved song is still queued, and a song equal to it before the move is still a duplicate
+    if (!jukebox.contains(song) || !jukebox.contains(new Song("Song1", "Artist1")))
+      return false;
+
+    try {
+      jukebox.addSongToQueue(song);
+      return false;
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    // Playing it leaves nothing behind, and the rendering no longer shows it
+    if (jukebox.playSong() != song || jukebox.contains(song) || !jukebox.toString().equals("END"))
+      return false;
+
+    jukebox.addSongToQueue(new Song("Song1", "Artist1"));
+
+    // The same holds for the registry of a SongIdQueue and for the concurrent jukebox
+    JukeBox idBox = new JukeBox(5, new SongIdQueue());
+    Song idSong = new Song("Song2", "Artist2");
+    idBox.addSongToQueue(idSong);
+    new Album("Album2").addSong(idSong);
+    Song idPlayed = idBox.playSong();
+
+    // The registry hands out the song as it was queued, not the caller's moved object
+    if (idPlayed == idSong || !idPlayed.equals(new Song("Song2", "Artist2"))
+        || idPlayed.getAlbum() != null || !idPlayed.toString().equals("Song2: Artist2 ()"))
+      return false;
+
+    idBox.addSongToQueue(new Song("Song2", "Artist2"));
+
+    ConcurrentJukeBox concurrent = new ConcurrentJukeBox(5);
+    Song concurrentSong = new Song("Song3", "Artist3");
+    concurrent.addSongToQueue(concurrentSong);
+    new Album("Album3").addSong(concurrentSong);
+
+    if (concurrent.playSong() != concurrentSong || !concurrent.isEmpty())
+      return false;
+
+    concurrent.addSongToQueue(new Song("Song3", "Artist3"));
+
+    // A song keeps its priority lane after it moves, including in the snapshots of a persistent
+    // jukebox, and leaves the lanes when it plays
+    PriorityLaneQueue<Song> lanes = new PriorityLaneQueue<Song>();
+
+    try {
+
+      QueueJournal journal =
+          new QueueJournal(Files.createTempDirectory("jukebox-journal"), 5, 1);
+      JukeBox laneBox = JukeBox.recover(5, lanes, journal);
+      Song laneSong = new Song("Song7", "Artist7");
+      laneBox.addSongToQueue(laneSong, 2);
+      new Album("Album7").addSong(laneSong);
+
+      if (!lanes.contains(laneSong) || lanes.getPriority(laneSong) != 2
+          || !laneBox.setPriority(laneSong, 3) || laneBox.playSong() != laneSong
+          || lanes.contains(laneSong))
+        return false;
+
+      laneBox.addSongToQueue(new Song("Song7", "Artist7"));
+      journal.close();
+
+    } catch (IOException e) {
+      return false;
+    }
+
+    // A song keeps its submitter after it moves, including in snapshots, and the default
+    // submitter's songs are recovered into the default sub-queue
+    FairShareQueue<Song> shares = new FairShareQueue<Song>();
+
+    try {
+
+      Path directory = Files.createTempDirectory("jukebox-journal");
+      QueueJournal journal = new QueueJournal(directory, 5, 1);
+      JukeBox shareBox = JukeBox.recover(5, shares, journal);
+      Song shareSong = new Song("Song8", "Artist8");
+      shareBox.addSongToQueue(shareSong, "alice");
+      new Album("Album8").addSong(shareSong);
+      shareBox.addSongToQueue(new Song("Song9", "Artist9"));
+
+      if (!shares.contains(shareSong) || !shares.getSubmitter(shareSong).equals("alice")
+          || shareBox.playSong() != shareSong || shares.contains(shareSong))
+        return false;
+
+      shareBox.addSongToQueue(new Song("Song8", "Artist8"), "bob");
+      journal.close();
+
+      FairShareQueue<Song> recovered = new FairShareQueue<Song>();
+      QueueJournal reopened = new QueueJournal(directory);
+      JukeBox.recover(5, recovered, reopened);
+      reopened.close();
+
+      if (recovered.submitters() != 2
+          || !recovered.getSubmitter(recovered.peek()).equals(FairShareQueue.DEFAULT_SUBMITTER))
+        return false;
+
+    } catch (IOException e) {
+      return false;
+    }
+
+    // A played song that moves stays in the repeat window under the identity it played with
+    RepeatWindow window = new RepeatWindow(2);
+    Song played = new Song("Song4", "Artist4");
+    window.played(played);
+    new Album("Album4").addSong(played);
+    window.played(new Song("Song5", "Artist5"));
+    window.played(new Song("Song6", "Artist6"));
+
+    return !window.contains(new Song("Song4", "Artist4")) && window.size() == 2
+        && jukebox.size() == 1 && idBox.size() == 1 && concurrent.size() == 1
+        && lanes.size() == 1 && shares.size() == 2;
+
+  }
+
   public static void main(String[] args) {
     // Running and printing results for all the tests
 
@@ -406,7 +2175,90 @@ public class JukeBoxTester {
     boolean test14 = testJukeboxShuffle();
     System.out.println("testJukeboxShuffle: " + (test14 ? "PASS" : "FAIL"));
 
-    System.out.println("ALL TESTS: " + (test1 && test2 && test3 && test4 && test5 && test6 && test7
-        && test8 && test9 && test10 && test11 && test12 && test13 && test14 ? "PASS" : "FAIL"));
+    boolean test15 = testJukeboxDuplicateIndex();
+    System.out.println("testJukeboxDuplicateIndex: " + (test15 ? "PASS" : "FAIL"));
+
+    boolean test16 = testSongKey();
+    System.out.println("testSongKey: " + (test16 ? "PASS" : "FAIL"));
+
+    boolean test17 = testAlbumTrackIndex();
+    System.out.println("testAlbumTrackIndex: " + (test17 ? "PASS" : "FAIL"));
+
+    boolean test18 = testArrayQueue();
+    System.out.println("testArrayQueue: " + (test18 ? "PASS" : "FAIL"));
+
+    boolean test19 = testArrayStack();
+    System.out.println("testArrayStack: " + (test19 ? "PASS" : "FAIL"));
+
+    boolean test20 = testIteration();
+    System.out.println("testIteration: " + (test20 ? "PASS" : "FAIL"));
+
+    boolean test21 = testSeededShuffle();
+    System.out.println("testSeededShuffle: " + (test21 ? "PASS" : "FAIL"));
+
+    boolean test22 = testConcurrentJukeBox();
+    System.out.println("testConcurrentJukeBox: " + (test22 ? "PASS" : "FAIL"));
+
+    boolean test23 = testBlockingJukeBox();
+    System.out.println("testBlockingJukeBox: " + (test23 ? "PASS" : "FAIL"));
+
+    boolean test24 = testBatchEnqueue();
+    System.out.println("testBatchEnqueue: " + (test24 ? "PASS" : "FAIL"));
+
+    boolean test25 = testConcurrentAlbum();
+    System.out.println("testConcurrentAlbum: " + (test25 ? "PASS" : "FAIL"));
+
+    boolean test26 = testNodePooling();
+    System.out.println("testNodePooling: " + (test26 ? "PASS" : "FAIL"));
+
+    boolean test27 = testUnrolledLinkedQueue();
+    System.out.println("testUnrolledLinkedQueue: " + (test27 ? "PASS" : "FAIL"));
+
+    boolean test28 = testQueueJournal();
+    System.out.println("testQueueJournal: " + (test28 ? "PASS" : "FAIL"));
+
+    boolean test29 = testCatalog();
+    System.out.println("testCatalog: " + (test29 ? "PASS" : "FAIL"));
+
+    boolean test30 = testCatalogImporter();
+    System.out.println("testCatalogImporter: " + (test30 ? "PASS" : "FAIL"));
+
+    boolean test31 = testNamePool();
+    System.out.println("testNamePool: " + (test31 ? "PASS" : "FAIL"));
+
+    boolean test32 = testCachedRendering();
+    System.out.println("testCachedRendering: " + (test32 ? "PASS" : "FAIL"));
+
+    boolean test33 = testWindowedReads();
+    System.out.println("testWindowedReads: " + (test33 ? "PASS" : "FAIL"));
+
+    boolean test34 = testPriorityLanes();
+    System.out.println("testPriorityLanes: " + (test34 ? "PASS" : "FAIL"));
+
+    boolean test35 = testFairShare();
+    System.out.println("testFairShare: " + (test35 ? "PASS" : "FAIL"));
+
+    boolean test36 = testJukeBoxRegistry();
+    System.out.println("testJukeBoxRegistry: " + (test36 ? "PASS" : "FAIL"));
+
+    boolean test37 = testRepeatWindow();
+    System.out.println("testRepeatWindow: " + (test37 ? "PASS" : "FAIL"));
+
+    boolean test38 = testSongIdQueue();
+    System.out.println("testSongIdQueue: " + (test38 ? "PASS" : "FAIL"));
+
+    boolean test39 = testQueuedSongMoved();
+    System.out.println("testQueuedSongMoved: " + (test39 ? "PASS" : "FAIL"));
+
+    boolean all = test1 && test2 && test3 && test4 && test5 && test6 && test7 && test8 && test9
+        && test10 && test11 && test12 && test13 && test14 && test15 && test16 && test17 && test18
+        && test19 && test20 && test21 && test22 && test23 && test24 && test25 && test26 && test27
+        && test28 && test29 && test30 && test31 && test32 && test33 && test34 && test35 && test36
+        && test37 && test38 && test39;
+    System.out.println("ALL TESTS: " + (all ? "PASS" : "FAIL"));
+
+    // Fail the run, and with it the Maven test phase, when any test failed
+    if (!all)
+      throw new AssertionError("Some JukeBoxTester tests failed");
   }
 }
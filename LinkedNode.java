@@ -37,6 +37,11 @@ public class LinkedNode<T> {
     return data;
   }
 
+  // Replaces the data stored in this node.
+  public void setData(T data) {
+    this.data = data;
+  }
+
   // Returns the next node in the list.
   public LinkedNode<T> getNext() {
     return next;
@@ -0,0 +1,107 @@
+/**
+ * A bounded free list of LinkedNodes. Structures that opt into recycling take their nodes from the
+ * pool and hand them back when an element is removed, so a queue or stack whose size stays level
+ * stops allocating once the pool has warmed up. Released nodes have their data and next references
+ * cleared, so the pool never keeps removed elements alive.
+ *
+ * <p>
+ * A pool is not thread-safe and is meant to be owned by a single structure. It must not be used
+ * with lock-free structures such as ConcurrentLinkedStack, whose ABA safety depends on nodes never
+ * being reused.
+ *
+ * @param <T> the type of data contained in the pooled nodes
+ * @author rishabhaggarwal
+ */
+public class LinkedNodePool<T> {
+
+  private final int maxSize; // Maximum number of idle nodes kept
+
+  private LinkedNode<T> free; // Top of the free list, linked through the nodes' next references
+
+  private int size; // Number of idle nodes in the free list
+
+  /**
+   * Creates an empty pool that keeps at most maxSize idle nodes.
+   *
+   * @param maxSize maximum number of idle nodes to keep
+   * @throws IllegalArgumentException if maxSize is negative
+   */
+  public LinkedNodePool(int maxSize) {
+
+    if (maxSize < 0) {
+      throw new IllegalArgumentException();
+    }
+
+    this.maxSize = maxSize;
+
+  }
+
+  /**
+   * Returns a node holding data and no next node, reusing an idle node if there is one.
+   *
+   * @param data the data to store in the node
+   * @return a node ready to be linked into a structure
+   */
+  public LinkedNode<T> acquire(T data) {
+
+    if (free == null) {
+      return new LinkedNode<T>(data);
+    }
+
+    LinkedNode<T> node = free;
+    free = node.getNext();
+    size--;
+
+    node.setNext(null);
+    node.setData(data);
+
+    return node;
+
+  }
+
+  /**
+   * Clears a node that is no longer linked into any structure and keeps it for reuse, unless the
+   * pool is already full.
+   *
+   * @param node the node to recycle
+   * @return true if the node was kept, false if the pool was full and the node was dropped
+   */
+  public boolean release(LinkedNode<T> node) {
+
+    node.setData(null);
+
+    if (size >= maxSize) {
+      node.setNext(null);
+      return false;
+    }
+
+    node.setNext(free);
+    free = node;
+    size++;
+
+    return true;
+
+  }
+
+  /**
+   * Returns the number of idle nodes in the pool.
+   *
+   * @return number of nodes ready for reuse
+   */
+  public int size() {
+
+    return this.size;
+
+  }
+
+  /**
+   * Returns the maximum number of idle nodes this pool keeps.
+   *
+   * @return the pool's bound
+   */
+  public int maxSize() {
+
+    return this.maxSize;
+
+  }
+}
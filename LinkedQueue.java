@@ -1,9 +1,17 @@
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.random.RandomGenerator;
 
 /**
  * A generic queue implementation using a linked list structure. Implements the QueueADT interface
- * to provide FIFO (First-In-First-Out) functionality.
+ * to provide FIFO (First-In-First-Out) functionality. A queue created with a node pool recycles the
+ * nodes of dequeued elements, so a queue that stays about the same size stops allocating.
  *
  * @param <T> the type of elements stored in the queue
  * @author rishabhaggarwal
@@ -16,6 +24,35 @@ public class LinkedQueue<T> implements QueueADT<T> {
 
   private int size; // Number of elements in queue
 
+  private int modCount; // Number of structural changes, used by iterators to fail fast
+
+  private LinkedNodePool<T> pool; // Recycled nodes, or null if this queue does not recycle
+
+  /**
+   * Creates an empty queue that allocates a new node for every element.
+   */
+  public LinkedQueue() {
+
+  }
+
+  /**
+   * Creates an empty queue that recycles the nodes of dequeued elements, keeping up to
+   * maxPooledNodes idle nodes for reuse. A factory rather than a constructor, so the pool size
+   * cannot be mistaken for the capacity taken by the ArrayQueue and ArrayStack constructors.
+   *
+   * @param <T>            the type of elements stored in the queue
+   * @param maxPooledNodes maximum number of idle nodes to keep
+   * @return the new queue
+   * @throws IllegalArgumentException if maxPooledNodes is negative
+   */
+  public static <T> LinkedQueue<T> pooled(int maxPooledNodes) {
+
+    LinkedQueue<T> queue = new LinkedQueue<T>();
+    queue.pool = new LinkedNodePool<T>(maxPooledNodes);
+    return queue;
+
+  }
+
   /**
    * Adds a new element to the back of the queue.
    *
@@ -24,7 +61,7 @@ public class LinkedQueue<T> implements QueueADT<T> {
   @Override
   public void enqueue(T value) {
 
-    LinkedNode<T> newNode = new LinkedNode<T>(value);
+    LinkedNode<T> newNode = newNode(value);
 
     // If queue is empty, set both front and back to new node
 
@@ -42,6 +79,53 @@ public class LinkedQueue<T> implements QueueADT<T> {
     }
 
     size++;
+    modCount++;
+
+  }
+
+  /**
+   * Adds all of the given elements to the back of the queue. The new nodes are linked into a chain
+   * first and then spliced onto the back of the queue in one step.
+   *
+   * @param values the elements to be added to the queue
+   */
+  @Override
+  public void enqueueAll(Collection<? extends T> values) {
+
+    if (values.isEmpty()) {
+      return;
+    }
+
+    // Build the chain of new nodes
+
+    LinkedNode<T> first = null;
+    LinkedNode<T> last = null;
+
+    for (T value : values) {
+
+      LinkedNode<T> newNode = newNode(value);
+
+      if (first == null) {
+        first = newNode;
+      } else {
+        last.setNext(newNode);
+      }
+
+      last = newNode;
+
+    }
+
+    // Splice the chain onto the back of the queue
+
+    if (this.isEmpty()) {
+      front = first;
+    } else {
+      back.setNext(first);
+    }
+
+    back = last;
+    size += values.size();
+    modCount++;
 
   }
 
@@ -65,7 +149,8 @@ public class LinkedQueue<T> implements QueueADT<T> {
 
     if (size == 1) {
 
-      this.clear();
+      front = null;
+      back = null;
 
     } else {
 
@@ -75,8 +160,15 @@ public class LinkedQueue<T> implements QueueADT<T> {
     }
 
     size--;
+    modCount++;
 
-    return dequeue.getData();
+    T data = dequeue.getData();
+
+    if (pool != null) {
+      pool.release(dequeue);
+    }
+
+    return data;
 
   }
 
@@ -126,9 +218,26 @@ public class LinkedQueue<T> implements QueueADT<T> {
   @Override
   public void clear() {
 
+    // Hand nodes back to the pool until it is full; the rest are left to the garbage collector
+
+    if (pool != null) {
+
+      LinkedNode<T> current = front;
+
+      while (current != null && pool.size() < pool.maxSize()) {
+
+        LinkedNode<T> next = current.getNext();
+        pool.release(current);
+        current = next;
+
+      }
+
+    }
+
     back = null;
     front = null;
     size = 0;
+    modCount++;
 
   }
 
@@ -173,6 +282,7 @@ public class LinkedQueue<T> implements QueueADT<T> {
    *
    * @return ArrayList containing queue elements in FIFO order
    */
+  @Override
   public ArrayList<T> getList() {
 
     ArrayList<T> list = new ArrayList<T>();
@@ -200,4 +310,124 @@ public class LinkedQueue<T> implements QueueADT<T> {
     return list;
 
   }
+
+  /**
+   * Randomly reorders the elements in the queue with a Fisher-Yates shuffle. The existing nodes are
+   * kept and only their data is permuted, so no nodes are allocated.
+   *
+   * @param random the source of randomness
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public void shuffle(RandomGenerator random) {
+
+    if (size < 2) {
+      return;
+    }
+
+    // Nodes have no random access, so shuffle the data in one array and write it back
+
+    Object[] data = new Object[size];
+
+    LinkedNode<T> current = front;
+
+    for (int i = 0; i < size; i++) {
+      data[i] = current.getData();
+      current = current.getNext();
+    }
+
+    for (int i = size - 1; i > 0; i--) {
+
+      int j = random.nextInt(i + 1);
+      Object swap = data[i];
+      data[i] = data[j];
+      data[j] = swap;
+
+    }
+
+    current = front;
+
+    for (int i = 0; i < size; i++) {
+      current.setData((T) data[i]);
+      current = current.getNext();
+    }
+
+    modCount++;
+
+  }
+
+  /**
+   * Returns a node holding value, taken from the pool if this queue recycles nodes.
+   *
+   * @param value the element to store
+   * @return an unlinked node holding value
+   */
+  private LinkedNode<T> newNode(T value) {
+
+    return pool != null ? pool.acquire(value) : new LinkedNode<T>(value);
+
+  }
+
+  /**
+   * Returns an iterator over the queue from front to back. The iterator walks the nodes in place
+   * and throws ConcurrentModificationException if the queue is modified while iterating.
+   *
+   * @return iterator over the queued elements in FIFO order
+   */
+  @Override
+  public Iterator<T> iterator() {
+
+    return new QueueIterator();
+
+  }
+
+  /**
+   * Returns a spliterator over the queue from front to back that reports the queue's size.
+   *
+   * @return spliterator over the queued elements in FIFO order
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+
+    return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+
+  }
+
+  /**
+   * Fail-fast iterator that follows the node links from front to back.
+   */
+  private class QueueIterator implements Iterator<T> {
+
+    private LinkedNode<T> next = front; // Node holding the next element to return
+
+    private int remaining = size; // Number of elements not yet returned
+
+    private final int expectedModCount = modCount; // Queue version this iterator was created at
+
+    @Override
+    public boolean hasNext() {
+
+      return remaining > 0;
+
+    }
+
+    @Override
+    public T next() {
+
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      if (remaining == 0) {
+        throw new NoSuchElementException();
+      }
+
+      T data = next.getData();
+      next = next.getNext();
+      remaining--;
+
+      return data;
+
+    }
+  }
 }
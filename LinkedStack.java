@@ -1,8 +1,14 @@
 
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 /**
- * A stack implementation using a linked list structure.
+ * A stack implementation using a linked list structure. A stack created with a node pool recycles
+ * the nodes of popped elements, so a stack that stays about the same size stops allocating.
  *
  * @param <T> the type of elements stored in the stack
  * @author rishabhaggarwal
@@ -11,6 +17,37 @@ public class LinkedStack<T> implements StackADT<T> {
 
   private LinkedNode<T> top; // Reference to the top node of the stack
 
+  private int size; // Number of elements in the stack
+
+  private int modCount; // Number of structural changes, used by iterators to fail fast
+
+  private LinkedNodePool<T> pool; // Recycled nodes, or null if this stack does not recycle
+
+  /**
+   * Creates an empty stack that allocates a new node for every element.
+   */
+  public LinkedStack() {
+
+  }
+
+  /**
+   * Creates an empty stack that recycles the nodes of popped elements, keeping up to
+   * maxPooledNodes idle nodes for reuse. A factory rather than a constructor, so the pool size
+   * cannot be mistaken for the capacity taken by the ArrayQueue and ArrayStack constructors.
+   *
+   * @param <T>            the type of elements stored in the stack
+   * @param maxPooledNodes maximum number of idle nodes to keep
+   * @return the new stack
+   * @throws IllegalArgumentException if maxPooledNodes is negative
+   */
+  public static <T> LinkedStack<T> pooled(int maxPooledNodes) {
+
+    LinkedStack<T> stack = new LinkedStack<T>();
+    stack.pool = new LinkedNodePool<T>(maxPooledNodes);
+    return stack;
+
+  }
+
   /**
    * Adds a new element to the top of the stack.
    *
@@ -19,7 +56,7 @@ public class LinkedStack<T> implements StackADT<T> {
   @Override
   public void push(T value) {
 
-    LinkedNode<T> newNode = new LinkedNode<T>(value);
+    LinkedNode<T> newNode = pool != null ? pool.acquire(value) : new LinkedNode<T>(value);
 
     // Link new node to current top and update top pointer
 
@@ -28,6 +65,8 @@ public class LinkedStack<T> implements StackADT<T> {
     }
 
     top = newNode;
+    size++;
+    modCount++;
 
   }
 
@@ -54,7 +93,16 @@ public class LinkedStack<T> implements StackADT<T> {
       top = top.getNext();
     }
 
-    return toPop.getData();
+    size--;
+    modCount++;
+
+    T data = toPop.getData();
+
+    if (pool != null) {
+      pool.release(toPop);
+    }
+
+    return data;
 
   }
 
@@ -123,6 +171,7 @@ public class LinkedStack<T> implements StackADT<T> {
    *
    * @return ArrayList containing stack elements in LIFO order
    */
+  @Override
   public ArrayList<T> getList() {
 
     ArrayList<T> list = new ArrayList<T>();
@@ -146,4 +195,76 @@ public class LinkedStack<T> implements StackADT<T> {
 
   }
 
+  /**
+   * Returns the number of elements in the stack.
+   *
+   * @return current size of stack
+   */
+  @Override
+  public int size() {
+
+    return this.size;
+
+  }
+
+  /**
+   * Returns an iterator over the stack from top to bottom. The iterator walks the nodes in place
+   * and throws ConcurrentModificationException if the stack is modified while iterating.
+   *
+   * @return iterator over the stacked elements in LIFO order
+   */
+  @Override
+  public Iterator<T> iterator() {
+
+    return new StackIterator();
+
+  }
+
+  /**
+   * Returns a spliterator over the stack from top to bottom that reports the stack's size.
+   *
+   * @return spliterator over the stacked elements in LIFO order
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+
+    return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+
+  }
+
+  /**
+   * Fail-fast iterator that follows the node links from top to bottom.
+   */
+  private class StackIterator implements Iterator<T> {
+
+    private LinkedNode<T> next = top; // Node holding the next element to return
+
+    private final int expectedModCount = modCount; // Stack version this iterator was created at
+
+    @Override
+    public boolean hasNext() {
+
+      return next != null;
+
+    }
+
+    @Override
+    public T next() {
+
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+
+      T data = next.getData();
+      next = next.getNext();
+
+      return data;
+
+    }
+  }
+
 }
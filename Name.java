@@ -0,0 +1,101 @@
+/**
+ * A pooled artist or album name. Names are flyweights: {@link #of(String)} returns one shared
+ * instance for equal text, so a catalog in which one artist has thousands of songs stores that
+ * artist's name once. Each Name also holds its case-folded form, itself a pooled Name, so two
+ * names are equal ignoring case exactly when their folded forms are the same instance.
+ *
+ * <p>
+ * The pool holds names weakly, and a name no song or album refers to anymore is dropped from it.
+ *
+ * @author rishabhaggarwal
+ */
+final class Name {
+
+  private static final WeakPool<String, Name> POOL = new WeakPool<String, Name>(); // Names by text
+
+  private final String text; // The name as written
+
+  private final Name folded; // The case-folded form of this name, or this name if already folded
+
+  /**
+   * Creates a name. Only the pool creates names.
+   *
+   * @param text   the name as written
+   * @param folded the folded form, or null if text is already folded
+   */
+  private Name(String text, Name folded) {
+
+    this.text = text;
+    this.folded = folded != null ? folded : this;
+
+  }
+
+  /**
+   * Returns the pooled name with the given text, folding it with {@link SongKey#fold(String)} if
+   * it is not pooled yet.
+   *
+   * @param text the name as written
+   * @return the shared name for text
+   */
+  static Name of(String text) {
+
+    Name name = POOL.get(text);
+
+    return name != null ? name : create(text, SongKey.fold(text));
+
+  }
+
+  /**
+   * Returns the pooled name with the given text, using foldedText as its folded form if it is not
+   * pooled yet. Lets readers that store folded forms, such as Catalog, skip the folding.
+   *
+   * @param text       the name as written
+   * @param foldedText the text folded with {@link SongKey#fold(String)}
+   * @return the shared name for text
+   */
+  static Name of(String text, String foldedText) {
+
+    Name name = POOL.get(text);
+
+    return name != null ? name : create(text, foldedText);
+
+  }
+
+  /**
+   * Pools a new name, along with its folded form.
+   *
+   * @param text       the name as written
+   * @param foldedText the text folded
+   * @return the shared name for text, which another thread may have pooled first
+   */
+  private static Name create(String text, String foldedText) {
+
+    Name folded = foldedText.equals(text) ? null : of(foldedText, foldedText);
+
+    return POOL.putIfAbsent(text, new Name(text, folded));
+
+  }
+
+  /**
+   * Returns the case-folded form of this name. Names equal ignoring case share it.
+   *
+   * @return the pooled folded name
+   */
+  Name folded() {
+
+    return folded;
+
+  }
+
+  /**
+   * Returns the name as written.
+   *
+   * @return the name's text
+   */
+  @Override
+  public String toString() {
+
+    return text;
+
+  }
+}
@@ -0,0 +1,562 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.random.RandomGenerator;
+
+/**
+ * A queue with priority lanes, implementing the QueueADT interface. Every element is queued with
+ * an integer priority; elements with a higher priority come out first, and elements with the same
+ * priority come out in the order they joined that lane, so a queue that only uses one priority is
+ * a plain FIFO queue. Backed by a binary heap with an index of each element's position, so
+ * enqueue, dequeue and changing the priority of a queued element are all O(log n).
+ *
+ * <p>
+ * An element can be queued at most once at a time, as decided by equals and hashCode: enqueueing
+ * an element equal to a queued one throws IllegalArgumentException. A song is indexed under the
+ * identity it has when it is queued, and the queued object itself is found by reference, so a song
+ * moved to another album while it waits can still be looked up, moved and removed. Iteration
+ * visits the elements in the order they would be dequeued, reading the heap lazily, so visiting the
+ * first k elements costs O(k log k) no matter how long the queue is.
+ *
+ * @param <T> the type of elements stored in the queue
+ * @author rishabhaggarwal
+ */
+public class PriorityLaneQueue<T> implements QueueADT<T> {
+
+  public static final int DEFAULT_PRIORITY = 0; // Priority of elements added with enqueue(value)
+
+  private Entry<T>[] heap; // Binary heap of entries, highest priority and oldest first
+
+  private int size; // Number of elements in queue
+
+  private final HashMap<Object, Entry<T>> entries; // Entry of each element, by its key when queued
+
+  private final IdentityHashMap<T, Entry<T>> queued; // Entry of each queued element object
+
+  private long nextSequence; // Sequence number given to the next element joining a lane
+
+  private int modCount; // Number of structural changes, used by iterators to fail fast
+
+  /**
+   * Creates an empty queue.
+   */
+  @SuppressWarnings("unchecked")
+  public PriorityLaneQueue() {
+
+    heap = (Entry<T>[]) new Entry<?>[16];
+    entries = new HashMap<Object, Entry<T>>();
+    queued = new IdentityHashMap<T, Entry<T>>();
+
+  }
+
+  /**
+   * Adds a new element to the back of the default priority lane.
+   *
+   * @param value the element to be added to the queue
+   * @throws IllegalArgumentException if an equal element is already queued
+   */
+  @Override
+  public void enqueue(T value) {
+
+    enqueue(value, DEFAULT_PRIORITY);
+
+  }
+
+  /**
+   * Adds a new element to the back of the lane with the given priority.
+   *
+   * @param value    the element to be added to the queue
+   * @param priority the element's priority; higher priorities are dequeued first
+   * @throws IllegalArgumentException if an equal element is already queued
+   */
+  public void enqueue(T value, int priority) {
+
+    Object key = Song.keyOf(value);
+
+    if (entries.containsKey(key) || queued.containsKey(value)) {
+      throw new IllegalArgumentException();
+    }
+
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, heap.length * 2);
+    }
+
+    Entry<T> entry = new Entry<T>(value, key, priority, nextSequence++);
+    entries.put(key, entry);
+    queued.put(value, entry);
+
+    heap[size] = entry;
+    entry.index = size;
+    size++;
+    siftUp(entry.index);
+
+    modCount++;
+
+  }
+
+  /**
+   * Adds all of the given elements to the back of the default priority lane, in iteration order.
+   *
+   * @param values the elements to be added to the queue
+   * @throws IllegalArgumentException if an element is already queued
+   */
+  @Override
+  public void enqueueAll(Collection<? extends T> values) {
+
+    for (T value : values) {
+      enqueue(value);
+    }
+
+  }
+
+  /**
+   * Removes and returns the element at the front of the queue: the oldest element in the highest
+   * priority lane.
+   *
+   * @return the first element in queue, or null if empty
+   */
+  @Override
+  public T dequeue() {
+
+    if (this.isEmpty()) {
+      return null;
+    }
+
+    Entry<T> first = heap[0];
+    removeAt(0);
+
+    return first.value;
+
+  }
+
+  /**
+   * Returns the element at the front of the queue without removing it.
+   *
+   * @return the first element in queue, or null if empty
+   */
+  @Override
+  public T peek() {
+
+    return isEmpty() ? null : heap[0].value;
+
+  }
+
+  /**
+   * Moves a queued element to the back of the lane with the given priority. Moving it to the
+   * priority it already has sends it to the back of its lane.
+   *
+   * @param value    the queued element
+   * @param priority the element's new priority
+   * @return true if the element was queued and has been moved, false if it is not in the queue
+   */
+  public boolean setPriority(T value, int priority) {
+
+    Entry<T> entry = entry(value);
+
+    if (entry == null) {
+      return false;
+    }
+
+    // Rejoining a lane means queueing behind everything already in it
+
+    entry.priority = priority;
+    entry.sequence = nextSequence++;
+
+    siftDown(siftUp(entry.index));
+    modCount++;
+
+    return true;
+
+  }
+
+  /**
+   * Returns the priority a queued element has.
+   *
+   * @param value the queued element
+   * @return the element's priority
+   * @throws NoSuchElementException if the element is not in the queue
+   */
+  public int getPriority(T value) {
+
+    Entry<T> entry = entry(value);
+
+    if (entry == null) {
+      throw new NoSuchElementException();
+    }
+
+    return entry.priority;
+
+  }
+
+  /**
+   * Checks if the queue is empty.
+   *
+   * @return true if queue contains no elements
+   */
+  @Override
+  public boolean isEmpty() {
+
+    return size == 0;
+
+  }
+
+  /**
+   * Returns the number of elements in the queue.
+   *
+   * @return current size of queue
+   */
+  @Override
+  public int size() {
+
+    return this.size;
+
+  }
+
+  /**
+   * Removes all elements from the queue.
+   */
+  @Override
+  public void clear() {
+
+    Arrays.fill(heap, 0, size, null);
+    entries.clear();
+    queued.clear();
+    size = 0;
+    modCount++;
+
+  }
+
+  /**
+   * Checks if a specific element exists in the queue, in constant time.
+   *
+   * @param value element to search for
+   * @return true if element is found
+   */
+  @Override
+  public boolean contains(T value) {
+
+    return entry(value) != null;
+
+  }
+
+  /**
+   * Creates an ArrayList containing all elements in the queue, in the order they would be
+   * dequeued.
+   *
+   * @return ArrayList containing queue elements from front to back
+   */
+  @Override
+  public ArrayList<T> getList() {
+
+    ArrayList<T> list = new ArrayList<T>(size);
+
+    for (T element : this) {
+      list.add(element);
+    }
+
+    return list;
+
+  }
+
+  /**
+   * Randomly reorders the elements within each priority lane with a Fisher-Yates shuffle. Elements
+   * keep their priorities, so a higher lane still comes out before a lower one.
+   *
+   * @param random the source of randomness
+   */
+  @Override
+  public void shuffle(RandomGenerator random) {
+
+    if (size < 2) {
+      return;
+    }
+
+    // Put the entries in dequeue order, so lanes are contiguous runs
+
+    @SuppressWarnings("unchecked")
+    Entry<T>[] ordered = (Entry<T>[]) new Entry<?>[size];
+    int n = 0;
+
+    for (T value : this) {
+      ordered[n++] = queued.get(value);
+    }
+
+    for (int start = 0; start < size;) {
+
+      int end = start + 1;
+
+      while (end < size && ordered[end].priority == ordered[start].priority) {
+        end++;
+      }
+
+      for (int i = end - 1; i > start; i--) {
+
+        int j = start + random.nextInt(i - start + 1);
+        Entry<T> swap = ordered[i];
+        ordered[i] = ordered[j];
+        ordered[j] = swap;
+
+      }
+
+      start = end;
+
+    }
+
+    // Renumber the lanes in their new order; a sorted array is already a valid heap
+
+    for (int i = 0; i < size; i++) {
+      ordered[i].sequence = nextSequence++;
+      ordered[i].index = i;
+      heap[i] = ordered[i];
+    }
+
+    modCount++;
+
+  }
+
+  /**
+   * Returns an iterator over the queue in the order the elements would be dequeued. The heap is
+   * explored lazily from the top, so each step costs O(log k) after k steps. The iterator throws
+   * ConcurrentModificationException if the queue is modified while iterating.
+   *
+   * @return iterator over the queued elements from front to back
+   */
+  @Override
+  public Iterator<T> iterator() {
+
+    return new QueueIterator();
+
+  }
+
+  /**
+   * Returns a spliterator over the queue from front to back that reports the queue's size.
+   *
+   * @return spliterator over the queued elements from front to back
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+
+    return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+
+  }
+
+  /**
+   * Finds the entry of a queued element: the element itself if it is queued, or else the one
+   * queued under the element's key.
+   *
+   * @param value the element to look up
+   * @return the element's entry, or null if it is not in the queue
+   */
+  private Entry<T> entry(T value) {
+
+    Entry<T> entry = queued.get(value);
+
+    return entry != null ? entry : entries.get(Song.keyOf(value));
+
+  }
+
+  /**
+   * Removes the entry at the given heap position, moving the last entry into its place.
+   *
+   * @param i position of the entry to remove
+   */
+  private void removeAt(int i) {
+
+    Entry<T> removed = heap[i];
+    entries.remove(removed.key);
+    queued.remove(removed.value);
+
+    size--;
+    Entry<T> last = heap[size];
+    heap[size] = null;
+
+    if (i < size) {
+      heap[i] = last;
+      last.index = i;
+      siftDown(siftUp(i));
+    }
+
+    modCount++;
+
+  }
+
+  /**
+   * Moves the entry at position i up until its parent comes before it.
+   *
+   * @param i position of the entry
+   * @return the entry's new position
+   */
+  private int siftUp(int i) {
+
+    Entry<T> entry = heap[i];
+
+    while (i > 0) {
+
+      int parent = (i - 1) >>> 1;
+
+      if (!before(entry, heap[parent])) {
+        break;
+      }
+
+      heap[i] = heap[parent];
+      heap[i].index = i;
+      i = parent;
+
+    }
+
+    heap[i] = entry;
+    entry.index = i;
+
+    return i;
+
+  }
+
+  /**
+   * Moves the entry at position i down until it comes before both its children.
+   *
+   * @param i position of the entry
+   */
+  private void siftDown(int i) {
+
+    Entry<T> entry = heap[i];
+
+    while (true) {
+
+      int child = 2 * i + 1;
+
+      if (child >= size) {
+        break;
+      }
+
+      if (child + 1 < size && before(heap[child + 1], heap[child])) {
+        child++;
+      }
+
+      if (!before(heap[child], entry)) {
+        break;
+      }
+
+      heap[i] = heap[child];
+      heap[i].index = i;
+      i = child;
+
+    }
+
+    heap[i] = entry;
+    entry.index = i;
+
+  }
+
+  /**
+   * Checks whether entry a is dequeued before entry b: it has a higher priority, or the same
+   * priority and joined the lane earlier.
+   *
+   * @param a an entry
+   * @param b another entry
+   * @return true if a comes first
+   */
+  private static boolean before(Entry<?> a, Entry<?> b) {
+
+    return a.priority != b.priority ? a.priority > b.priority : a.sequence < b.sequence;
+
+  }
+
+  /**
+   * A queued element with its priority, its place in its lane and its position in the heap.
+   */
+  private static class Entry<T> {
+
+    private final T value; // The queued element
+
+    private final Object key; // Key the element was indexed under when it was queued
+
+    private int priority; // Lane the element is in
+
+    private long sequence; // When the element joined its lane; lower is earlier
+
+    private int index; // Position of this entry in the heap
+
+    /**
+     * Creates an entry.
+     *
+     * @param value    the queued element
+     * @param key      the key the element is indexed under
+     * @param priority the element's lane
+     * @param sequence when the element joined the lane
+     */
+    private Entry(T value, Object key, int priority, long sequence) {
+
+      this.value = value;
+      this.key = key;
+      this.priority = priority;
+      this.sequence = sequence;
+
+    }
+  }
+
+  /**
+   * Fail-fast iterator that walks the heap best-first, keeping the children of the entries
+   * returned so far in a small priority queue of candidates.
+   */
+  private class QueueIterator implements Iterator<T> {
+
+    private final PriorityQueue<Entry<T>> candidates; // Entries whose parents have been returned
+
+    private final int expectedModCount = modCount; // Queue version this iterator was created at
+
+    /**
+     * Creates an iterator starting at the top of the heap.
+     */
+    private QueueIterator() {
+
+      candidates = new PriorityQueue<Entry<T>>((a, b) -> before(a, b) ? -1 : 1);
+
+      if (size > 0) {
+        candidates.add(heap[0]);
+      }
+
+    }
+
+    @Override
+    public boolean hasNext() {
+
+      return !candidates.isEmpty();
+
+    }
+
+    @Override
+    public T next() {
+
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      Entry<T> entry = candidates.poll();
+
+      if (entry == null) {
+        throw new NoSuchElementException();
+      }
+
+      int child = 2 * entry.index + 1;
+
+      if (child < size) {
+        candidates.add(heap[child]);
+      }
+
+      if (child + 1 < size) {
+        candidates.add(heap[child + 1]);
+      }
+
+      return entry.value;
+
+    }
+  }
+}
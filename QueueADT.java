@@ -1,10 +1,18 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * An abstract data type describing common queue functionality. A queue observes a
  * first-in-first-out protocol, where the only accessible value is the least-recently added value.
+ * Iterating over a queue visits its elements from front to back without removing them.
  * 
  * @param <T> the type of data contained in this queue
  */
-public interface QueueADT<T> {
+public interface QueueADT<T> extends Iterable<T> {
 
   /**
    * Add a new element to the back of the queue, assumed to be non-null.
@@ -13,6 +21,14 @@ public interface QueueADT<T> {
    */
   public void enqueue(T value);
 
+  /**
+   * Add all of the given elements to the back of the queue, in iteration order, assumed to be
+   * non-null.
+   * 
+   * @param values the values to add
+   */
+  public void enqueueAll(Collection<? extends T> values);
+
   /**
    * Removes and returns the value added to this queue least recently
    * 
@@ -53,4 +69,81 @@ public interface QueueADT<T> {
    * @return true if the queue contains the element, false otherwise
    */
   public boolean contains(T value);
+
+  /**
+   * Returns a new list holding the elements of this queue, ordered from front to back
+   * 
+   * @return a list of the queued elements in FIFO order
+   */
+  public ArrayList<T> getList();
+
+  /**
+   * Randomly reorders the elements of this queue in place, so that every permutation is equally
+   * likely given a uniform random generator
+   * 
+   * @param random the source of randomness
+   */
+  public void shuffle(RandomGenerator random);
+
+  /**
+   * Returns a new list holding the first n elements of this queue, or all of them if there are
+   * fewer, ordered from front to back. Only those elements are visited.
+   * 
+   * @param n the maximum number of elements to return
+   * @return a list of up to n elements from the front of the queue
+   * @throws IllegalArgumentException if n is negative
+   */
+  public default ArrayList<T> peek(int n) {
+
+    return range(0, n);
+
+  }
+
+  /**
+   * Returns a new list holding the elements at positions from (inclusive) to to (exclusive),
+   * counted from the front of the queue at 0. Positions past the back of the queue are ignored.
+   * This implementation walks from the front to position from, then copies only the requested
+   * elements; implementations that can jump to a position override it.
+   * 
+   * @param from position of the first element to return
+   * @param to   position after the last element to return
+   * @return a list of the elements in that window, in FIFO order
+   * @throws IllegalArgumentException if from is negative or to is less than from
+   */
+  public default ArrayList<T> range(int from, int to) {
+
+    if (from < 0 || to < from) {
+      throw new IllegalArgumentException();
+    }
+
+    int end = Math.min(to, size());
+    ArrayList<T> list = new ArrayList<T>(Math.max(0, end - from));
+    Iterator<T> iterator = iterator();
+
+    for (int i = 0; i < end; i++) {
+
+      T element = iterator.next();
+
+      if (i >= from) {
+        list.add(element);
+      }
+
+    }
+
+    return list;
+
+  }
+
+  /**
+   * Returns a sequential stream over the elements of this queue, from front to back. The stream is
+   * lazy: elements are read from the queue only as the stream consumes them, so a stream limited
+   * to k elements visits only those.
+   * 
+   * @return a stream of the queued elements in FIFO order
+   */
+  public default Stream<T> stream() {
+
+    return StreamSupport.stream(spliterator(), false);
+
+  }
 }
@@ -0,0 +1,998 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A crash-safe write-ahead journal for the song queue of a JukeBox. Every change to the queue is
+ * appended to a journal file as a checksummed record, and the whole queue is periodically written
+ * to a snapshot file so the journal, and with it recovery time, stays short.
+ *
+ * <p>
+ * A change is encoded before it is made, so one that cannot be journalled, or that would follow a
+ * failed flush, is turned away while the queue is still untouched. Appending it once made only
+ * frames the record into memory. A background flusher writes the pending records and forces them to
+ * disk every commit interval, so one fsync covers every change made in that interval (group
+ * commit). {@link #sync()} forces everything appended so far before returning, for callers that
+ * need a change to be durable right away. A change that was not yet forced when the process died is
+ * lost, but the queue is always recovered exactly as it was after some prefix of the changes.
+ *
+ * <p>
+ * Each record carries a sequence number, and the snapshot stores the number of the last change it
+ * includes. A jukebox only copies its queue for a snapshot; the flusher writes it before any later
+ * record, so players are not held up by it. A snapshot is written to a temporary file, forced, and
+ * atomically moved into place, and the directory is forced so the move is on disk before the
+ * journal is truncated. A crash at any point leaves either the old snapshot and the full journal,
+ * or the new snapshot and records it already covers, which replay skips. Records not yet written to
+ * the journal are only dropped once the new snapshot is in place, so a snapshot that fails leaves
+ * them to be written. A record cut short by a crash fails its checksum and is dropped along with
+ * everything after it.
+ *
+ * <p>
+ * Shuffles are journalled by seed: the queue is shuffled with a SplittableRandom created from the
+ * seed, and replay shuffles the same songs with the same seed to get the same order.
+ *
+ * <p>
+ * The queue of a jukebox running on a PriorityLaneQueue is journalled with each song's priority:
+ * priority changes are recorded, and the snapshot stores each song's priority next to it. When
+ * such a journal is replayed into a queue without priority lanes, the priorities are ignored.
+ * Likewise, the queue of a jukebox running on a FairShareQueue is journalled with the submitter of
+ * each song, which a queue without submitters ignores.
+ *
+ * @author rishabhaggarwal
+ */
+public class QueueJournal implements Closeable {
+
+  private static final String JOURNAL_FILE = "queue.journal"; // Name of the journal file
+
+  private static final String SNAPSHOT_FILE = "queue.snapshot"; // Name of the snapshot file
+
+  private static final int SNAPSHOT_MAGIC = 0x4A4B5333; // "JKS3", marks a snapshot file
+
+  private static final int SNAPSHOT_MAGIC_V2 = 0x4A4B5332; // "JKS2", a snapshot without submitters
+
+  private static final int SNAPSHOT_MAGIC_V1 = 0x4A4B5331; // "JKS1", a snapshot without priorities
+
+  private static final byte ADD = 1; // Record type: a song was added to the back of the queue
+
+  private static final byte PLAY = 2; // Record type: the song at the front was removed
+
+  private static final byte SHUFFLE = 3; // Record type: the queue was shuffled with a seed
+
+  private static final byte CLEAR = 4; // Record type: the queue was emptied
+
+  private static final byte PRIORITY = 5; // Record type: a queued song moved to a priority lane
+
+  private static final byte SUBMIT = 6; // Record type: a song was added to a submitter's sub-queue
+
+  private static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 10; // Time between group commits
+
+  private static final int DEFAULT_SNAPSHOT_EVERY = 10000; // Records between snapshots
+
+  private final Path directory; // Directory holding the journal and snapshot files
+
+  private final FileChannel channel; // Open journal file, written only at its end
+
+  private final int snapshotEvery; // Number of records after which a snapshot is due
+
+  private final ScheduledExecutorService flusher; // Background thread running the group commits
+
+  private final Object bufferLock = new Object(); // Guards the pending buffer and counters below
+
+  private final Object flushLock = new Object(); // Serializes writes to the journal file
+
+  private final ByteArrayOutputStream pending = new ByteArrayOutputStream(); // Unwritten records
+
+  private final DataOutputStream framed = new DataOutputStream(pending); // Frames pending records
+
+  private long lastSequence; // Sequence number of the last appended record
+
+  private long durableSequence; // Sequence number of the last record forced to disk
+
+  private int recordsSinceSnapshot; // Records appended since the last snapshot
+
+  private boolean replayed; // Whether replay has run, which must happen before any append
+
+  private Snapshot captured; // Snapshot waiting to be written before any later record, or null
+
+  private volatile IOException failure; // First error hit by the background flusher, if any
+
+  private boolean closed; // Whether close has been called
+
+  /**
+   * Opens the journal in the given directory with the default commit interval and snapshot
+   * frequency, creating the directory if needed.
+   *
+   * @param directory directory holding the journal and snapshot files
+   * @throws IOException if the journal file cannot be opened
+   */
+  public QueueJournal(Path directory) throws IOException {
+
+    this(directory, DEFAULT_COMMIT_INTERVAL_MILLIS, DEFAULT_SNAPSHOT_EVERY);
+
+  }
+
+  /**
+   * Opens the journal in the given directory, creating the directory if needed.
+   *
+   * @param directory            directory holding the journal and snapshot files
+   * @param commitIntervalMillis time between group commits, in milliseconds
+   * @param snapshotEvery        number of journalled changes after which a snapshot is due
+   * @throws IllegalArgumentException if directory is null, or commitIntervalMillis or snapshotEvery
+   *                                  is less than 1
+   * @throws IOException              if the journal file cannot be opened
+   */
+  public QueueJournal(Path directory, long commitIntervalMillis, int snapshotEvery)
+      throws IOException {
+
+    if (directory == null || commitIntervalMillis < 1 || snapshotEvery < 1) {
+      throw new IllegalArgumentException();
+    }
+
+    Files.createDirectories(directory);
+
+    this.directory = directory;
+    this.snapshotEvery = snapshotEvery;
+    this.channel = FileChannel.open(directory.resolve(JOURNAL_FILE), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "queue-journal-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    flusher.scheduleWithFixedDelay(this::backgroundFlush, commitIntervalMillis,
+        commitIntervalMillis, TimeUnit.MILLISECONDS);
+
+  }
+
+  /**
+   * Rebuilds the journalled queue into the given empty queue: loads the snapshot, then applies
+   * every later change in the journal. A torn or corrupt record at the end of the journal is cut
+   * off so new records are appended after the last good one. Must be called once, before any
+   * change is appended.
+   *
+   * @param queue empty queue to rebuild the songs into
+   * @throws IllegalArgumentException if queue is null or not empty
+   * @throws IllegalStateException    if the journal has already been replayed
+   * @throws IOException              if the files cannot be read or the snapshot is corrupt
+   */
+  public void replay(QueueADT<Song> queue) throws IOException {
+
+    if (queue == null || !queue.isEmpty()) {
+      throw new IllegalArgumentException();
+    }
+
+    synchronized (flushLock) {
+
+      if (replayed) {
+        throw new IllegalStateException();
+      }
+
+      HashMap<String, Album> albums = new HashMap<String, Album>(); // One Album per name
+      long sequence = readSnapshot(queue, albums);
+
+      // Apply the journal records the snapshot does not already include
+
+      long validLength = 0;
+      channel.position(0);
+
+      DataInputStream in = new DataInputStream(
+          new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+
+      while (true) {
+
+        byte[] bytes;
+
+        try {
+
+          int length = in.readInt();
+
+          if (length < 9 || length > channel.size()) {
+            break;
+          }
+
+          bytes = new byte[length];
+          in.readFully(bytes);
+
+          CRC32 crc = new CRC32();
+          crc.update(bytes);
+
+          if (in.readInt() != (int) crc.getValue()) {
+            break;
+          }
+
+        } catch (EOFException e) {
+          break;
+        }
+
+        validLength += bytes.length + 8;
+
+        DataInputStream fields = new DataInputStream(new ByteArrayInputStream(bytes));
+        long recordSequence = fields.readLong();
+        byte type = fields.readByte();
+
+        if (recordSequence <= sequence) {
+          continue;
+        }
+
+        sequence = recordSequence;
+
+        if (type == ADD) {
+          queue.enqueue(readSong(fields, albums));
+        } else if (type == PLAY) {
+          queue.dequeue();
+        } else if (type == SHUFFLE) {
+          queue.shuffle(new SplittableRandom(fields.readLong()));
+        } else if (type == CLEAR) {
+          queue.clear();
+        } else if (type == PRIORITY && queue instanceof PriorityLaneQueue) {
+          Song song = readSong(fields, albums);
+          ((PriorityLaneQueue<Song>) queue).setPriority(song, fields.readInt());
+        } else if (type == SUBMIT) {
+          enqueue(queue, readSong(fields, albums), PriorityLaneQueue.DEFAULT_PRIORITY,
+              fields.readUTF());
+        }
+
+        recordsSinceSnapshot++;
+
+      }
+
+      // Drop the torn tail, if any, and continue numbering after the last change
+
+      channel.truncate(validLength);
+      channel.position(validLength);
+
+      synchronized (bufferLock) {
+        lastSequence = sequence;
+        durableSequence = sequence;
+        replayed = true;
+      }
+
+    }
+
+  }
+
+  /**
+   * Starts encoding changes to the queue. Changes are encoded before they are made, so one that
+   * cannot be journalled is turned away while the queue is still untouched, and are appended with
+   * {@link #append(Changes)} once they have been made.
+   *
+   * @return an empty set of changes
+   * @throws IllegalStateException if the journal has not been replayed yet
+   * @throws UncheckedIOException  if the background flusher failed, so nothing appended from now on
+   *                               could be written
+   */
+  Changes changes() {
+
+    if (!replayed) {
+      throw new IllegalStateException();
+    }
+
+    IOException failed = failure;
+
+    if (failed != null) {
+      throw new UncheckedIOException(new IOException("Journal flush failed", failed));
+    }
+
+    return new Changes();
+
+  }
+
+  /**
+   * Appends changes that have been made to the queue, numbering them after every change appended
+   * so far. Only frames the encoded records into memory, so it cannot fail.
+   *
+   * @param changes the changes, in the order they were made
+   */
+  void append(Changes changes) {
+
+    synchronized (bufferLock) {
+
+      for (byte[] bytes : changes.records) {
+
+        ByteBuffer.wrap(bytes).putLong(0, ++lastSequence);
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        try {
+
+          framed.writeInt(bytes.length);
+          framed.write(bytes);
+          framed.writeInt((int) crc.getValue());
+
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+
+        recordsSinceSnapshot++;
+
+      }
+
+    }
+
+  }
+
+  /**
+   * Checks whether enough changes have been journalled since the last snapshot that a new one
+   * should be written.
+   *
+   * @return true if a snapshot is due
+   */
+  public boolean snapshotDue() {
+
+    synchronized (bufferLock) {
+      return recordsSinceSnapshot >= snapshotEvery;
+    }
+
+  }
+
+  /**
+   * Captures the given queue as the next snapshot, to be written by the background flusher before
+   * any record appended after it. Only copies the songs, so the caller can hold its lock without
+   * stalling on the write. The queue must be in the state reached by applying every change
+   * appended so far. A snapshot that cannot be written is reported like a failed flush.
+   *
+   * @param queue the current queue of songs
+   */
+  void scheduleSnapshot(QueueADT<Song> queue) {
+
+    capture(queue);
+
+  }
+
+  /**
+   * Writes the given queue as the new snapshot and empties the journal. The queue must be in the
+   * state reached by applying every change appended so far, and must not change until this method
+   * returns.
+   *
+   * @param queue the current queue of songs
+   * @throws IOException if the snapshot cannot be written
+   */
+  public void snapshot(QueueADT<Song> queue) throws IOException {
+
+    synchronized (flushLock) {
+
+      checkFailure();
+
+      Snapshot snapshot = capture(queue);
+
+      try {
+        flush();
+      } catch (IOException e) {
+
+        // The caller hears of the failure, so the snapshot is not retried behind its back
+
+        synchronized (bufferLock) {
+
+          if (captured == snapshot) {
+            captured = null;
+          }
+
+        }
+
+        throw e;
+
+      }
+
+    }
+
+  }
+
+  /**
+   * Writes and forces every change appended so far. Changes appended by other threads while
+   * waiting are forced in the same commit.
+   *
+   * @throws IOException if the journal cannot be written
+   */
+  public void sync() throws IOException {
+
+    long target;
+
+    synchronized (bufferLock) {
+      target = lastSequence;
+    }
+
+    synchronized (flushLock) {
+
+      checkFailure();
+
+      // Another thread's commit may already have covered this change
+
+      if (durableSequence < target) {
+        flush();
+      }
+
+    }
+
+  }
+
+  /**
+   * Forces every change appended so far, stops the background flusher and closes the journal
+   * file. Calling close more than once has no effect.
+   *
+   * @throws IOException if the pending changes cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+
+    synchronized (flushLock) {
+
+      if (closed) {
+        return;
+      }
+
+      closed = true;
+      flusher.shutdownNow();
+
+      try {
+
+        checkFailure();
+        flush();
+
+      } finally {
+        channel.close();
+      }
+
+    }
+
+  }
+
+  /**
+   * Writes the pending records to the journal file and forces them to disk. The caller must hold
+   * flushLock.
+   *
+   * @throws IOException if the journal cannot be written
+   */
+  private void flush() throws IOException {
+
+    byte[] bytes;
+    long sequence;
+
+    // A captured snapshot goes first, since emptying the journal must not drop any record appended
+    // after it was taken
+
+    while (true) {
+
+      Snapshot snapshot;
+
+      synchronized (bufferLock) {
+
+        snapshot = captured;
+
+        if (snapshot == null) {
+
+          if (lastSequence == durableSequence) {
+            return;
+          }
+
+          bytes = pending.toByteArray();
+          sequence = lastSequence;
+          pending.reset();
+          break;
+
+        }
+
+      }
+
+      writeSnapshot(snapshot);
+
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+
+    channel.force(false);
+
+    synchronized (bufferLock) {
+      durableSequence = sequence;
+    }
+
+  }
+
+  /**
+   * Runs one group commit on the flusher thread, writing a captured snapshot first, and remembers
+   * the first error so it is reported to the next change and the next caller of sync, snapshot or
+   * close.
+   */
+  private void backgroundFlush() {
+
+    synchronized (flushLock) {
+
+      if (closed || failure != null) {
+        return;
+      }
+
+      try {
+        flush();
+      } catch (IOException e) {
+        failure = e;
+      }
+
+    }
+
+  }
+
+  /**
+   * Throws the error hit by the background flusher, if any. The caller must hold flushLock.
+   *
+   * @throws IOException the flusher's error
+   */
+  private void checkFailure() throws IOException {
+
+    if (failure != null) {
+      throw new IOException("Journal flush failed", failure);
+    }
+
+  }
+
+  /**
+   * Copies the given queue as the snapshot to write before any record appended after now. A
+   * snapshot that is still waiting to be written is replaced, since the new one includes it.
+   *
+   * @param queue the current queue of songs
+   * @return the captured snapshot
+   */
+  private Snapshot capture(QueueADT<Song> queue) {
+
+    PriorityLaneQueue<Song> lanes =
+        queue instanceof PriorityLaneQueue ? (PriorityLaneQueue<Song>) queue : null;
+    FairShareQueue<Song> shares =
+        queue instanceof FairShareQueue ? (FairShareQueue<Song>) queue : null;
+
+    Snapshot snapshot = new Snapshot(queue.size());
+    int i = 0;
+
+    for (Song song : queue) {
+
+      snapshot.songs[i] = song;
+      snapshot.albums[i] = song.getAlbum();
+      snapshot.priorities[i] =
+          lanes != null ? lanes.getPriority(song) : PriorityLaneQueue.DEFAULT_PRIORITY;
+      snapshot.submitters[i] =
+          shares != null ? shares.getSubmitter(song) : FairShareQueue.DEFAULT_SUBMITTER;
+      i++;
+
+    }
+
+    // Records not yet written are covered by the snapshot, but are kept until it is in place
+
+    synchronized (bufferLock) {
+
+      snapshot.sequence = lastSequence;
+      snapshot.covered = pending.size();
+      captured = snapshot;
+      recordsSinceSnapshot = 0;
+
+    }
+
+    return snapshot;
+
+  }
+
+  /**
+   * Writes a captured snapshot into place and empties the journal, then drops the pending records
+   * it covers. The caller must hold flushLock, and no record may have been written to the journal
+   * since the snapshot was captured.
+   *
+   * @param snapshot the captured snapshot
+   * @throws IOException if the snapshot cannot be written
+   */
+  private void writeSnapshot(Snapshot snapshot) throws IOException {
+
+    Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+
+    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+      CheckedOutputStream checked = new CheckedOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16), new CRC32());
+      DataOutputStream data = new DataOutputStream(checked);
+
+      data.writeInt(SNAPSHOT_MAGIC);
+      data.writeLong(snapshot.sequence);
+      data.writeInt(snapshot.songs.length);
+
+      for (int i = 0; i < snapshot.songs.length; i++) {
+
+        writeSong(data, snapshot.songs[i], snapshot.albums[i]);
+        data.writeInt(snapshot.priorities[i]);
+        data.writeUTF(snapshot.submitters[i]);
+
+      }
+
+      data.writeInt((int) checked.getChecksum().getValue());
+      data.flush();
+      out.force(true);
+
+    }
+
+    Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+
+    // The rename must be durable before the journal it replaces is emptied
+
+    try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+      dir.force(true);
+    }
+
+    channel.truncate(0);
+    channel.position(0);
+    channel.force(true);
+
+    synchronized (bufferLock) {
+
+      byte[] later = Arrays.copyOfRange(pending.toByteArray(), snapshot.covered, pending.size());
+      pending.reset();
+      pending.write(later, 0, later.length);
+
+      // A snapshot captured while this one was written covers fewer of the remaining records
+
+      if (captured == snapshot) {
+        captured = null;
+      } else if (captured != null) {
+        captured.covered -= snapshot.covered;
+      }
+
+      durableSequence = snapshot.sequence;
+
+    }
+
+  }
+
+  /**
+   * Loads the snapshot, if there is one, into the given queue.
+   *
+   * @param queue  empty queue to add the snapshot's songs to
+   * @param albums albums created so far, by name
+   * @return sequence number of the last change the snapshot includes, or 0 if there is none
+   * @throws IOException if the snapshot cannot be read or is corrupt
+   */
+  private long readSnapshot(QueueADT<Song> queue, HashMap<String, Album> albums)
+      throws IOException {
+
+    Path file = directory.resolve(SNAPSHOT_FILE);
+
+    if (!Files.exists(file)) {
+      return 0;
+    }
+
+    try (InputStream stream = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+
+      CheckedInputStream checked = new CheckedInputStream(stream, new CRC32());
+      DataInputStream in = new DataInputStream(checked);
+
+      int magic = in.readInt();
+
+      if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V2 && magic != SNAPSHOT_MAGIC_V1) {
+        throw new IOException("Not a queue snapshot: " + file);
+      }
+
+      long sequence = in.readLong();
+      int count = in.readInt();
+
+      // Songs are stored in playback order, so each one joins the back of its lane or sub-queue,
+      // and submitters join the rotation in the order of their first turn
+
+      for (int i = 0; i < count; i++) {
+
+        Song song = readSong(in, albums);
+        int priority =
+            magic != SNAPSHOT_MAGIC_V1 ? in.readInt() : PriorityLaneQueue.DEFAULT_PRIORITY;
+        String submitter =
+            magic == SNAPSHOT_MAGIC ? in.readUTF() : FairShareQueue.DEFAULT_SUBMITTER;
+
+        enqueue(queue, song, priority, submitter);
+
+      }
+
+      int expected = (int) checked.getChecksum().getValue();
+
+      if (new DataInputStream(stream).readInt() != expected) {
+        throw new IOException("Corrupt queue snapshot: " + file);
+      }
+
+      return sequence;
+
+    }
+
+  }
+
+  /**
+   * Adds a recovered song to the queue, into its priority lane or its submitter's sub-queue if the
+   * queue has them.
+   *
+   * @param queue     the queue being rebuilt
+   * @param song      the song to add
+   * @param priority  the song's priority, ignored unless queue is a PriorityLaneQueue
+   * @param submitter the song's submitter, ignored unless queue is a FairShareQueue
+   */
+  private static void enqueue(QueueADT<Song> queue, Song song, int priority, String submitter) {
+
+    if (queue instanceof PriorityLaneQueue) {
+      ((PriorityLaneQueue<Song>) queue).enqueue(song, priority);
+    } else if (queue instanceof FairShareQueue
+        && !submitter.equals(FairShareQueue.DEFAULT_SUBMITTER)) {
+      ((FairShareQueue<Song>) queue).enqueue(song, submitter);
+    } else {
+      queue.enqueue(song);
+    }
+
+  }
+
+  /**
+   * Encodes a song as its name, artist and album name.
+   *
+   * @param out   the stream to write to
+   * @param song  the song to encode
+   * @param album the song's album, or null if it has none
+   * @throws IOException if the stream cannot be written
+   */
+  private static void writeSong(DataOutputStream out, Song song, Album album) throws IOException {
+
+    out.writeUTF(song.getName());
+    out.writeUTF(song.getArtist());
+    out.writeBoolean(album != null);
+
+    if (album != null) {
+      out.writeUTF(album.getAlbumName());
+    }
+
+  }
+
+  /**
+   * Decodes a song written by writeSong. Songs of the same album share one Album object, which
+   * does not list them as tracks.
+   *
+   * @param in     the stream to read from
+   * @param albums albums created so far, by name
+   * @return the decoded song
+   * @throws IOException if the stream cannot be read
+   */
+  private static Song readSong(DataInputStream in, HashMap<String, Album> albums)
+      throws IOException {
+
+    Song song = new Song(in.readUTF(), in.readUTF());
+
+    if (in.readBoolean()) {
+      song.setAlbum(albums.computeIfAbsent(in.readUTF(), Album::new));
+    }
+
+    return song;
+
+  }
+
+  /**
+   * Changes to the queue encoded ahead of time, each record laid out as it is framed in the
+   * journal with room for its sequence number, which is filled in when it is appended.
+   */
+  static class Changes {
+
+    private final ArrayList<byte[]> records = new ArrayList<byte[]>(); // Encoded records, in order
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(); // Record being encoded
+
+    private final DataOutputStream record = new DataOutputStream(body); // Encodes the record body
+
+    /**
+     * Creates an empty set of changes.
+     */
+    private Changes() {
+
+    }
+
+    /**
+     * Encodes that the song was added to the back of the queue.
+     *
+     * @param song the added song
+     * @throws UncheckedIOException if the song cannot be encoded, such as a name too long to store
+     */
+    void add(Song song) {
+
+      try {
+
+        begin(ADD);
+        writeSong(record, song, song.getAlbum());
+        end();
+
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+    }
+
+    /**
+     * Encodes that the song was added to the back of the given submitter's sub-queue, as by
+     * {@link FairShareQueue#enqueue(Object, String)}.
+     *
+     * @param song      the added song
+     * @param submitter the submitter the song was queued for
+     * @throws UncheckedIOException if the song or submitter cannot be encoded
+     */
+    void add(Song song, String submitter) {
+
+      try {
+
+        begin(SUBMIT);
+        writeSong(record, song, song.getAlbum());
+        record.writeUTF(submitter);
+        end();
+
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+    }
+
+    /**
+     * Encodes that a queued song was moved to the back of the lane with the given priority, as by
+     * {@link PriorityLaneQueue#setPriority(Object, int)}.
+     *
+     * @param song     the queued song
+     * @param priority the song's new priority
+     * @throws UncheckedIOException if the song cannot be encoded
+     */
+    void priority(Song song, int priority) {
+
+      try {
+
+        begin(PRIORITY);
+        writeSong(record, song, song.getAlbum());
+        record.writeInt(priority);
+        end();
+
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+    }
+
+    /**
+     * Encodes that the song at the front of the queue was removed.
+     */
+    void play() {
+
+      simple(PLAY);
+
+    }
+
+    /**
+     * Encodes that the queue was shuffled with a SplittableRandom created from seed.
+     *
+     * @param seed the seed the queue was shuffled with
+     */
+    void shuffle(long seed) {
+
+      try {
+
+        begin(SHUFFLE);
+        record.writeLong(seed);
+        end();
+
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+    }
+
+    /**
+     * Encodes that the queue was emptied.
+     */
+    void clear() {
+
+      simple(CLEAR);
+
+    }
+
+    /**
+     * Drops the change encoded last, for a change that turned out not to be made.
+     */
+    void removeLast() {
+
+      records.remove(records.size() - 1);
+
+    }
+
+    /**
+     * Encodes a change that has no fields besides its type.
+     *
+     * @param type the record type
+     */
+    private void simple(byte type) {
+
+      try {
+
+        begin(type);
+        end();
+
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+    }
+
+    /**
+     * Starts encoding a record, leaving room for its sequence number.
+     *
+     * @param type the record type
+     * @throws IOException never, the record is encoded in memory
+     */
+    private void begin(byte type) throws IOException {
+
+      body.reset();
+      record.writeLong(0);
+      record.writeByte(type);
+
+    }
+
+    /**
+     * Adds the record being encoded to the changes.
+     */
+    private void end() {
+
+      records.add(body.toByteArray());
+
+    }
+  }
+
+  /**
+   * A copy of the queue taken for a snapshot, waiting to be written.
+   */
+  private static class Snapshot {
+
+    private final Song[] songs; // Queued songs in playback order
+
+    private final Album[] albums; // Album of each song when it was captured
+
+    private final int[] priorities; // Priority of each song
+
+    private final String[] submitters; // Submitter of each song
+
+    private long sequence; // Sequence number of the last change the snapshot includes
+
+    private int covered; // Number of pending bytes holding records the snapshot includes
+
+    /**
+     * Creates an empty copy for the given number of songs.
+     *
+     * @param size number of queued songs
+     */
+    private Snapshot(int size) {
+
+      this.songs = new Song[size];
+      this.albums = new Album[size];
+      this.priorities = new int[size];
+      this.submitters = new String[size];
+
+    }
+  }
+}
@@ -0,0 +1,184 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded window of recently played songs, so a jukebox can refuse to queue a song again too
+ * soon after it played. The window holds at most a fixed number of songs and, optionally, only the
+ * songs played within a maximum age; the oldest song leaves once either limit is passed.
+ *
+ * <p>
+ * The songs are kept in a ring buffer in the order they played, with their play times, and a hash
+ * index from each song to its latest slot in the ring. Checking for a song, recording a play and
+ * evicting the oldest play are all O(1), and the memory used is fixed by the maximum number of
+ * songs. Songs are matched by equals and hashCode, like the jukebox's duplicate check, using the
+ * identity each song had when it played, so moving a played song to another album afterwards
+ * does not disturb the window.
+ *
+ * @author rishabhaggarwal
+ */
+public class RepeatWindow {
+
+  private final SongKey[] songs; // Ring buffer of the identities of played songs, oldest at head
+
+  private final long[] playedAt; // Clock reading when the song in the same slot was played
+
+  private final HashMap<SongKey, Integer> latest; // Slot of the latest play of each identity
+
+  private final long maxAgeNanos; // How long a play stays in the window, or Long.MAX_VALUE
+
+  private final LongSupplier clock; // Source of the current time, in nanoseconds
+
+  private int head; // Slot of the oldest play in the window
+
+  private int size; // Number of plays in the window
+
+  /**
+   * Creates a window of the last maxSongs songs played, however long ago.
+   *
+   * @param maxSongs number of recent plays to remember
+   * @throws IllegalArgumentException if maxSongs is less than 1
+   */
+  public RepeatWindow(int maxSongs) {
+
+    this(maxSongs, Long.MAX_VALUE, TimeUnit.NANOSECONDS, System::nanoTime);
+
+  }
+
+  /**
+   * Creates a window of the songs played within maxAge, holding at most the last maxSongs of them.
+   *
+   * @param maxSongs number of recent plays to remember at most
+   * @param maxAge   how long a play is remembered, in units of unit
+   * @param unit     the unit of maxAge
+   * @throws IllegalArgumentException if maxSongs or maxAge is less than 1, or unit is null
+   */
+  public RepeatWindow(int maxSongs, long maxAge, TimeUnit unit) {
+
+    this(maxSongs, maxAge, unit, System::nanoTime);
+
+  }
+
+  /**
+   * Creates a window of the songs played within maxAge, holding at most the last maxSongs of them,
+   * that reads the time from the given clock instead of System.nanoTime, for example so tests can
+   * move time forward.
+   *
+   * @param maxSongs number of recent plays to remember at most
+   * @param maxAge   how long a play is remembered, in units of unit
+   * @param unit     the unit of maxAge
+   * @param clock    returns the current time in nanoseconds, never going backwards
+   * @throws IllegalArgumentException if maxSongs or maxAge is less than 1, or unit or clock is null
+   */
+  public RepeatWindow(int maxSongs, long maxAge, TimeUnit unit, LongSupplier clock) {
+
+    if (maxSongs < 1 || maxAge < 1 || unit == null || clock == null) {
+      throw new IllegalArgumentException();
+    }
+
+    songs = new SongKey[maxSongs];
+    playedAt = new long[maxSongs];
+    latest = new HashMap<SongKey, Integer>(Math.max(16, (int) (maxSongs / 0.75f) + 1));
+    maxAgeNanos = unit.toNanos(maxAge);
+    this.clock = clock;
+
+  }
+
+  /**
+   * Records that a song was just played. If the window is full, the oldest play leaves it.
+   *
+   * @param song the played song
+   * @throws IllegalArgumentException if song is null
+   */
+  public void played(Song song) {
+
+    if (song == null) {
+      throw new IllegalArgumentException();
+    }
+
+    long now = clock.getAsLong();
+    expire(now);
+
+    if (size == songs.length) {
+      evictOldest();
+    }
+
+    int slot = (head + size) % songs.length;
+    songs[slot] = song.getKey();
+    playedAt[slot] = now;
+    latest.put(songs[slot], slot);
+    size++;
+
+  }
+
+  /**
+   * Checks whether a song was played recently enough to still be in the window.
+   *
+   * @param song the song to look for
+   * @return true if an equal song is in the window
+   */
+  public boolean contains(Song song) {
+
+    expire(clock.getAsLong());
+
+    return song != null && latest.containsKey(song.getKey());
+
+  }
+
+  /**
+   * Returns the number of plays in the window.
+   *
+   * @return number of remembered plays
+   */
+  public int size() {
+
+    expire(clock.getAsLong());
+
+    return size;
+
+  }
+
+  /**
+   * Forgets every play in the window.
+   */
+  public void clear() {
+
+    Arrays.fill(songs, null);
+    latest.clear();
+    head = 0;
+    size = 0;
+
+  }
+
+  /**
+   * Evicts the plays older than the maximum age, oldest first.
+   *
+   * @param now the current clock reading
+   */
+  private void expire(long now) {
+
+    if (maxAgeNanos == Long.MAX_VALUE) {
+      return;
+    }
+
+    while (size > 0 && now - playedAt[head] >= maxAgeNanos) {
+      evictOldest();
+    }
+
+  }
+
+  /**
+   * Evicts the oldest play, dropping its song from the index unless the song was played again
+   * since.
+   */
+  private void evictOldest() {
+
+    latest.remove(songs[head], head);
+
+    songs[head] = null;
+    head = (head + 1) % songs.length;
+    size--;
+
+  }
+}
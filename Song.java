@@ -1,8 +1,16 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents a song with a name, album, and artist. This class provides basic information about a
  * song and a string representation of it.
  */
 public class Song {
+  /**
+   * Number of times any song has moved from one album to another, so albums can tell when a
+   * rendering that shows one of their songs may be out of date.
+   */
+  private static final AtomicInteger MOVES = new AtomicInteger();
+
   /**
    * The name of the song.
    */
@@ -14,9 +22,19 @@ public class Song {
   private Album album;
 
   /**
-   * The name of the artist who performed the song.
+   * The name of the artist who performed the song, shared with every other song by that artist.
    */
-  private String artist;
+  private Name artist;
+
+  /**
+   * The case-insensitive identity of the song, refreshed whenever the album changes.
+   */
+  private SongKey key;
+
+  /**
+   * The result of toString, or null if it has not been rendered since the album last changed.
+   */
+  private String rendered;
 
   /**
    * Constructs a new Song object with the specified name, album, and artist.
@@ -26,14 +44,77 @@ public class Song {
    * @throws IllegalArgumentException if the any of the fields is null or empty
    */
   public Song(String name, String artist) {
+    validate(name, artist);
+    this.name = name;
+    this.artist = Name.of(artist);
+    this.key = SongKey.ofFolded(SongKey.fold(name), this.artist, null);
+  }
+
+  /**
+   * Constructs a song whose identity key has already been computed, skipping validation and case
+   * folding. Used to materialize songs from a Catalog, which stores valid names and their folded
+   * forms, and CatalogImporter, which has validated the fields with {@link #validate}.
+   *
+   * @param name   the name of the song
+   * @param artist the pooled name of the artist who performed the song
+   * @param key    the identity of the song, usually in the album it is about to be added to
+   */
+  Song(String name, Name artist, SongKey key) {
+    this.name = name;
+    this.artist = artist;
+    this.key = key;
+  }
+
+  /**
+   * Checks the fields of a song against the rules of the public constructor.
+   *
+   * @param name   the name of the song
+   * @param artist the artist who performed the song
+   * @throws IllegalArgumentException if the any of the fields is null or empty
+   */
+  static void validate(String name, String artist) {
     if (name == null || artist == null) {
       throw new IllegalArgumentException("Null input fields");
     }
     if (name.isBlank() || artist.isBlank()) {
       throw new IllegalArgumentException("Blank input fields");
     }
-    this.name = name;
-    this.artist = artist;
+  }
+
+  /**
+   * Returns the name of the song.
+   *
+   * @return the song's name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the name of the artist who performed the song.
+   *
+   * @return the song's artist
+   */
+  public String getArtist() {
+    return artist.toString();
+  }
+
+  /**
+   * Returns the pooled name of the artist who performed the song.
+   *
+   * @return the song's artist
+   */
+  Name getArtistName() {
+    return artist;
+  }
+
+  /**
+   * Returns the album that contains the song.
+   *
+   * @return the song's album, or null if it has none
+   */
+  public Album getAlbum() {
+    return album;
   }
 
   /**
@@ -42,41 +123,126 @@ public class Song {
    * @param album the Album object to be associated with this song.
    */
   public void setAlbum(Album album) {
+    setAlbum(album, keyIn(album));
+  }
+
+  /**
+   * Sets the album for this song together with the identity key it has in that album, as returned
+   * by {@link #keyIn(Album)}, so the key is not looked up twice.
+   *
+   * @param album the Album object to be associated with this song.
+   * @param key   the identity of this song in that album
+   */
+  void setAlbum(Album album, SongKey key) {
+    if (this.album != null && this.album != album) {
+      MOVES.incrementAndGet();
+    }
     this.album = album;
+    this.key = key;
+    this.rendered = null;
+  }
+
+  /**
+   * Returns a copy of this song that belongs to the given album with the given identity, without
+   * adding it to the album's tracks or moving this song.
+   *
+   * @param album the album the copy belongs to, or null
+   * @param key   the identity of the song in that album
+   * @return the copy
+   */
+  Song copyIn(Album album, SongKey key) {
+    Song copy = new Song(name, artist, key);
+    copy.album = album;
+    return copy;
+  }
+
+  /**
+   * Returns the number of times any song has moved from one album to another. Songs only move when
+   * one that already has an album is added to another, so the count rarely changes.
+   *
+   * @return the number of moves so far
+   */
+  static int moves() {
+    return MOVES.get();
+  }
+
+  /**
+   * Returns the identity this song would have if it belonged to the given album, without moving
+   * it there.
+   *
+   * @param album the album to compute the identity for, or null
+   * @return the identity key of this song in that album
+   */
+  SongKey keyIn(Album album) {
+    return key.withAlbum(album != null ? album.getName() : null);
   }
 
   /**
    * Returns a string representation of the song, including its name, artist, and albumName. If the
-   * album is null, use an empty string in the parentheses ()
+   * album is null, use an empty string in the parentheses (). The string is built once and reused
+   * until the song's album changes.
    *
    * @return a string in the format "Name: Artist (Album)"
    */
   @Override
   public String toString() {
     // TODO Auto-generated method stub
-    String albumName = album != null ? album.getAlbumName() : "";
-    return name + ": " + artist + " (" + albumName + ")";
+    String result = rendered;
+    if (result == null) {
+      String albumName = album != null ? album.getAlbumName() : "";
+      result = name + ": " + artist + " (" + albumName + ")";
+      rendered = result;
+    }
+    return result;
   }
 
   /**
    * Determines whether this song and anObject are copies (deep or shallow) of each other. If
    * anObject is not a Song object at all, they are not equal. If it IS a Song, then they are equal
    * if and only if this song and anObject have the same name, artist, and album (CASE INSENSITIVE).
-   * Two albums are considered to be equal only if their names match or they are both null.
+   * Two albums are considered to be equal only if their names match or they are both null. The
+   * comparison is delegated to the songs' identity keys: a hash check, reference checks on the
+   * pooled artist and album names, and one comparison of the already folded song names, rather
+   * than three case-insensitive string comparisons.
    */
   @Override
   public boolean equals(Object anObject) {
     if (anObject instanceof Song) {
-      Song s = (Song) anObject;
-      if (this.name.equalsIgnoreCase(s.name) && this.artist.equalsIgnoreCase(s.artist)) {
-        if (this.album == null && s.album == null) {
-          return true;
-        }
-        if (this.album != null && s.album != null) {
-          return this.album.getAlbumName().equalsIgnoreCase(s.album.getAlbumName());
-        }
-      }
+      return this.key.equals(((Song) anObject).key);
     }
     return false;
   }
+
+  /**
+   * Returns a hash code consistent with {@link #equals(Object)}, taken from this song's identity
+   * key so it is never recomputed.
+   *
+   * @return the hash code of this song's case-insensitive identity
+   */
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  /**
+   * Returns the case-folded identity of this song. It changes whenever the song is moved
+   * to another album.
+   *
+   * @return this song's identity key
+   */
+  SongKey getKey() {
+    return key;
+  }
+
+  /**
+   * Returns what a queue should index an element under while it is queued: for a song, its
+   * identity key as it is now, which stays valid even if the song later moves to another album;
+   * for any other element, the element itself.
+   *
+   * @param value the element being queued
+   * @return the key to index it under
+   */
+  static Object keyOf(Object value) {
+    return value instanceof Song ? ((Song) value).key : value;
+  }
 }
@@ -0,0 +1,422 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.random.RandomGenerator;
+
+/**
+ * A queue of songs stored as int ids, implementing the QueueADT interface. Each song is turned
+ * into its id by a SongRegistry, the ids are kept in a circular int array, and a bit set records
+ * which ids are queued. A queue of a million songs takes about 4 MB for the array and a bit per
+ * registered song, instead of a node and a reference per song, membership is a bit test, and a
+ * shuffle permutes ints in place. The array doubles when it fills up.
+ *
+ * <p>
+ * A song can be queued at most once at a time, as decided by equals and hashCode: enqueueing a
+ * song equal to a queued one throws IllegalArgumentException. Dequeue and iteration return the
+ * song the registry holds for the id, which is the first of the equal songs that was registered.
+ *
+ * @author rishabhaggarwal
+ */
+public class SongIdQueue implements QueueADT<Song> {
+
+  private static final int DEFAULT_CAPACITY = 16; // Initial array length
+
+  private final SongRegistry registry; // Assigns the ids of the queued songs
+
+  private int[] ids; // Circular buffer holding the ids of the queued songs
+
+  private int front; // Index of the first id in queue
+
+  private int size; // Number of songs in queue
+
+  private final BitSet queued; // Ids of the songs in queue
+
+  private int modCount; // Number of structural changes, used by iterators to fail fast
+
+  /**
+   * Creates an empty queue with its own registry.
+   */
+  public SongIdQueue() {
+
+    this(new SongRegistry(), DEFAULT_CAPACITY);
+
+  }
+
+  /**
+   * Creates an empty queue whose songs get their ids from the given registry.
+   *
+   * @param registry the registry to take ids from, which may be shared with other queues
+   * @throws IllegalArgumentException if registry is null
+   */
+  public SongIdQueue(SongRegistry registry) {
+
+    this(registry, DEFAULT_CAPACITY);
+
+  }
+
+  /**
+   * Creates an empty queue whose songs get their ids from the given registry, able to hold
+   * initialCapacity songs before it has to grow.
+   *
+   * @param registry        the registry to take ids from, which may be shared with other queues
+   * @param initialCapacity number of songs to pre-size the array for
+   * @throws IllegalArgumentException if registry is null or initialCapacity is negative
+   */
+  public SongIdQueue(SongRegistry registry, int initialCapacity) {
+
+    if (registry == null || initialCapacity < 0) {
+      throw new IllegalArgumentException();
+    }
+
+    this.registry = registry;
+    ids = new int[initialCapacity];
+    queued = new BitSet();
+
+  }
+
+  /**
+   * Returns the registry the queue takes its ids from.
+   *
+   * @return the queue's registry
+   */
+  public SongRegistry registry() {
+
+    return registry;
+
+  }
+
+  /**
+   * Adds a new song to the back of the queue.
+   *
+   * @param value the song to be added to the queue
+   * @throws IllegalArgumentException if value is null or an equal song is already queued
+   */
+  @Override
+  public void enqueue(Song value) {
+
+    enqueueId(registry.idOf(value));
+
+  }
+
+  /**
+   * Adds the song with the given id to the back of the queue, for callers that have already looked
+   * the id up in the queue's registry. The id is not checked against the registry, so it must be
+   * one the registry returned.
+   *
+   * @param id the registry id of the song to be added
+   * @throws IllegalArgumentException if id is negative or the song is already queued
+   */
+  public void enqueueId(int id) {
+
+    if (id < 0 || queued.get(id)) {
+      throw new IllegalArgumentException();
+    }
+
+    if (size == ids.length) {
+      grow(size + 1);
+    }
+
+    ids[index(size)] = id;
+    queued.set(id);
+    size++;
+    modCount++;
+
+  }
+
+  /**
+   * Adds all of the given songs to the back of the queue, growing the array at most once.
+   *
+   * @param values the songs to be added to the queue
+   * @throws IllegalArgumentException if a song is null or already queued
+   */
+  @Override
+  public void enqueueAll(Collection<? extends Song> values) {
+
+    if (size + values.size() > ids.length) {
+      grow(size + values.size());
+    }
+
+    for (Song value : values) {
+      enqueue(value);
+    }
+
+  }
+
+  /**
+   * Removes and returns the song at the front of the queue.
+   *
+   * @return the first song in queue, or null if empty
+   */
+  @Override
+  public Song dequeue() {
+
+    int id = dequeueId();
+
+    return id >= 0 ? registry.song(id) : null;
+
+  }
+
+  /**
+   * Removes the song at the front of the queue and returns its id, without looking the song up.
+   *
+   * @return the id of the first song in queue, or -1 if empty
+   */
+  public int dequeueId() {
+
+    if (this.isEmpty()) {
+      return -1;
+    }
+
+    int id = ids[front];
+
+    queued.clear(id);
+    front = index(1);
+    size--;
+    modCount++;
+
+    return id;
+
+  }
+
+  /**
+   * Returns the song at the front of the queue without removing it.
+   *
+   * @return the first song in queue, or null if empty
+   */
+  @Override
+  public Song peek() {
+
+    return isEmpty() ? null : registry.song(ids[front]);
+
+  }
+
+  /**
+   * Checks if the queue is empty.
+   *
+   * @return true if queue contains no songs
+   */
+  @Override
+  public boolean isEmpty() {
+
+    return size == 0;
+
+  }
+
+  /**
+   * Returns the number of songs in the queue.
+   *
+   * @return current size of queue
+   */
+  @Override
+  public int size() {
+
+    return this.size;
+
+  }
+
+  /**
+   * Removes all songs from the queue. The array keeps its current length.
+   */
+  @Override
+  public void clear() {
+
+    queued.clear();
+    front = 0;
+    size = 0;
+    modCount++;
+
+  }
+
+  /**
+   * Checks if the song with the given id is in the queue, with a single bit test.
+   *
+   * @param id the registry id of the song to search for
+   * @return true if the song is queued
+   */
+  public boolean containsId(int id) {
+
+    return id >= 0 && queued.get(id);
+
+  }
+
+  /**
+   * Checks if a specific song exists in the queue, with one registry lookup and a bit test.
+   *
+   * @param value song to search for
+   * @return true if an equal song is queued
+   */
+  @Override
+  public boolean contains(Song value) {
+
+    return containsId(registry.find(value));
+
+  }
+
+  /**
+   * Creates an ArrayList containing all songs in the queue. Songs are ordered from front to back.
+   *
+   * @return ArrayList containing queued songs in FIFO order
+   */
+  @Override
+  public ArrayList<Song> getList() {
+
+    return range(0, size);
+
+  }
+
+  /**
+   * Creates an ArrayList containing the songs at positions from (inclusive) to to (exclusive),
+   * reading their ids straight from the array without visiting the songs before them.
+   *
+   * @param from position of the first song to return
+   * @param to   position after the last song to return
+   * @return ArrayList containing the songs in that window in FIFO order
+   * @throws IllegalArgumentException if from is negative or to is less than from
+   */
+  @Override
+  public ArrayList<Song> range(int from, int to) {
+
+    if (from < 0 || to < from) {
+      throw new IllegalArgumentException();
+    }
+
+    int end = Math.min(to, size);
+    ArrayList<Song> list = new ArrayList<Song>(Math.max(0, end - from));
+
+    for (int i = from; i < end; i++) {
+      list.add(registry.song(ids[index(i)]));
+    }
+
+    return list;
+
+  }
+
+  /**
+   * Randomly reorders the songs in the queue with a Fisher-Yates shuffle of the ids, directly on
+   * the circular array.
+   *
+   * @param random the source of randomness
+   */
+  @Override
+  public void shuffle(RandomGenerator random) {
+
+    for (int i = size - 1; i > 0; i--) {
+
+      int a = index(i);
+      int b = index(random.nextInt(i + 1));
+      int swap = ids[a];
+      ids[a] = ids[b];
+      ids[b] = swap;
+
+    }
+
+    modCount++;
+
+  }
+
+  /**
+   * Returns an iterator over the queue from front to back. The iterator reads the array in place
+   * and throws ConcurrentModificationException if the queue is modified while iterating.
+   *
+   * @return iterator over the queued songs in FIFO order
+   */
+  @Override
+  public Iterator<Song> iterator() {
+
+    return new QueueIterator();
+
+  }
+
+  /**
+   * Returns a spliterator over the queue from front to back that reports the queue's size.
+   *
+   * @return spliterator over the queued songs in FIFO order
+   */
+  @Override
+  public Spliterator<Song> spliterator() {
+
+    return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+
+  }
+
+  /**
+   * Maps a position counted from the front of the queue to an array index.
+   *
+   * @param i position from the front
+   * @return index into the circular array
+   */
+  private int index(int i) {
+
+    int index = front + i;
+
+    return index < ids.length ? index : index - ids.length;
+
+  }
+
+  /**
+   * Doubles the array length, or more if minLength requires it, unwrapping the ids so the front is
+   * at index 0.
+   *
+   * @param minLength the smallest array length that is needed
+   */
+  private void grow(int minLength) {
+
+    int newLength = Math.max(1, ids.length * 2);
+
+    if (newLength < 0) {
+      newLength = Integer.MAX_VALUE - 8; // Array length overflowed
+    }
+
+    newLength = Math.max(newLength, minLength);
+
+    int[] grown = new int[newLength];
+
+    // Copy the part from front to the end of the array, then the wrapped part
+
+    int firstPart = Math.min(size, ids.length - front);
+
+    System.arraycopy(ids, front, grown, 0, firstPart);
+    System.arraycopy(ids, 0, grown, firstPart, size - firstPart);
+
+    ids = grown;
+    front = 0;
+
+  }
+
+  /**
+   * Fail-fast iterator that reads the circular array from front to back.
+   */
+  private class QueueIterator implements Iterator<Song> {
+
+    private int position; // Position from the front of the next song to return
+
+    private final int expectedModCount = modCount; // Queue version this iterator was created at
+
+    @Override
+    public boolean hasNext() {
+
+      return position < size;
+
+    }
+
+    @Override
+    public Song next() {
+
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      if (position >= size) {
+        throw new NoSuchElementException();
+      }
+
+      return registry.song(ids[index(position++)]);
+
+    }
+  }
+}
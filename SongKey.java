@@ -0,0 +1,160 @@
+/**
+ * The case-insensitive identity of a song: its name, artist, and album name, each folded the same
+ * way {@link String#equalsIgnoreCase(String)} compares characters. Keys are immutable and compute
+ * their hash once.
+ *
+ * <p>
+ * Keys are not interned. They were when first introduced, so that equal keys were one object and
+ * equality a reference check; that guarantee was given up when artist and album names became
+ * pooled Names, because interning whole keys took a global lock for every key created, including
+ * the keys CatalogImporter computes on many threads at once. Two equal keys are therefore usually
+ * different objects, and equality is by value: equals compares the hashes first, then the artist
+ * and album, which as pooled, folded Names compare by reference, and only then the folded song
+ * names as text. Keys of different songs almost always differ in hash, so the text comparison is
+ * normally only made between equal keys, and costs one pass over the song name.
+ *
+ * @author rishabhaggarwal
+ */
+public final class SongKey {
+
+  private final String name; // Case-folded song name
+
+  private final Name artist; // Folded artist name
+
+  private final Name albumName; // Folded album name, or null if the song has no album
+
+  private final int hash; // Precomputed hash of the three folded fields
+
+  /**
+   * Creates a key from already folded fields.
+   *
+   * @param name      the folded song name
+   * @param artist    the folded artist name
+   * @param albumName the folded album name, or null
+   */
+  private SongKey(String name, Name artist, Name albumName) {
+
+    this.name = name;
+    this.artist = artist;
+    this.albumName = albumName;
+
+    int h = name.hashCode();
+    h = 31 * h + artist.toString().hashCode();
+    this.hash = 31 * h + (albumName != null ? albumName.toString().hashCode() : 0);
+
+  }
+
+  /**
+   * Returns a key for the given song fields. Fields are compared ignoring case.
+   *
+   * @param name      the song name
+   * @param artist    the artist name
+   * @param albumName the album name, or null if the song has no album
+   * @return the key for that identity
+   */
+  public static SongKey of(String name, String artist, String albumName) {
+
+    return ofFolded(fold(name), Name.of(artist), albumName != null ? Name.of(albumName) : null);
+
+  }
+
+  /**
+   * Returns a key for a song whose name has already been folded with
+   * {@link #fold(String)}, such as the precomputed keys of a Catalog.
+   *
+   * @param name      the folded song name
+   * @param artist    the artist name
+   * @param albumName the album name, or null if the song has no album
+   * @return the key for that identity
+   */
+  static SongKey ofFolded(String name, Name artist, Name albumName) {
+
+    return new SongKey(name, artist.folded(), albumName != null ? albumName.folded() : null);
+
+  }
+
+  /**
+   * Returns the key of the same song in another album, without folding the song name again.
+   *
+   * @param albumName the album name, or null for no album
+   * @return the key for that identity
+   */
+  SongKey withAlbum(Name albumName) {
+
+    return ofFolded(name, artist, albumName);
+
+  }
+
+  /**
+   * Folds every code point of s to a case-insensitive form. Two strings fold to equal strings
+   * exactly when equalsIgnoreCase considers them equal. Returns s itself if it is already folded.
+   *
+   * @param s the string to fold
+   * @return the folded string
+   */
+  static String fold(String s) {
+
+    StringBuilder sb = null;
+
+    for (int i = 0; i < s.length();) {
+
+      int codePoint = s.codePointAt(i);
+      int folded = Character.toLowerCase(Character.toUpperCase(codePoint));
+
+      // Only start copying once a code point actually changes
+
+      if (folded != codePoint && sb == null) {
+        sb = new StringBuilder(s.length());
+        sb.append(s, 0, i);
+      }
+
+      if (sb != null) {
+        sb.appendCodePoint(folded);
+      }
+
+      i += Character.charCount(codePoint);
+
+    }
+
+    return sb != null ? sb.toString() : s;
+
+  }
+
+  /**
+   * Returns true if o is a SongKey with the same folded name, artist, and album name. The hashes
+   * and the pooled names are compared by value and reference first; the song names are compared as
+   * text last.
+   *
+   * @param o the object to compare with
+   * @return true if both keys describe the same song identity
+   */
+  @Override
+  public boolean equals(Object o) {
+
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof SongKey)) {
+      return false;
+    }
+
+    SongKey k = (SongKey) o;
+
+    return hash == k.hash && artist == k.artist && albumName == k.albumName
+        && name.equals(k.name);
+
+  }
+
+  /**
+   * Returns the hash computed when this key was created.
+   *
+   * @return the precomputed hash code
+   */
+  @Override
+  public int hashCode() {
+
+    return hash;
+
+  }
+}
@@ -0,0 +1,133 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Assigns each distinct song a dense int id: the first song registered gets 0, the next new one 1,
+ * and so on. Songs are told apart by equals and hashCode, like the jukebox's duplicate check, so
+ * equal songs share an id. Once the ids are known, queues and sets of songs can be stored as int
+ * arrays and bit sets instead of object references, see SongIdQueue.
+ *
+ * <p>
+ * An id stands for the identity the song had when it was registered: moving a registered song to
+ * another album later does not change its id or disturb the registry. The song returned for the
+ * id always has that identity; once the registered object has moved, a copy of it in the album it
+ * was registered in is returned instead, so the caller's moved song never comes back out.
+ *
+ * <p>
+ * Ids are never reused or released, so a registry is meant for a catalog of songs, not for an
+ * unbounded stream of new ones. A registry can be shared between queues, including queues used on
+ * different threads.
+ *
+ * @author rishabhaggarwal
+ */
+public class SongRegistry {
+
+  private final HashMap<SongKey, Integer> ids; // Id of each registered identity
+
+  private Song[] songs; // Registered songs, indexed by id
+
+  private Album[] albums; // Album each song was registered in, indexed by id
+
+  private SongKey[] keys; // Identity each song was registered with, indexed by id
+
+  private int size; // Number of registered songs, which is also the next id
+
+  /**
+   * Creates an empty registry.
+   */
+  public SongRegistry() {
+
+    ids = new HashMap<SongKey, Integer>();
+    songs = new Song[16];
+    albums = new Album[16];
+    keys = new SongKey[16];
+
+  }
+
+  /**
+   * Returns the id of a song, registering it with the next free id if it is new.
+   *
+   * @param song the song to look up
+   * @return the song's id
+   * @throws IllegalArgumentException if song is null
+   */
+  public synchronized int idOf(Song song) {
+
+    if (song == null) {
+      throw new IllegalArgumentException();
+    }
+
+    SongKey key = song.getKey();
+    Integer id = ids.get(key);
+
+    if (id != null) {
+      return id;
+    }
+
+    if (size == songs.length) {
+      songs = Arrays.copyOf(songs, songs.length * 2);
+      albums = Arrays.copyOf(albums, songs.length);
+      keys = Arrays.copyOf(keys, songs.length);
+    }
+
+    songs[size] = song;
+    albums[size] = song.getAlbum();
+    keys[size] = key;
+    ids.put(key, size);
+
+    return size++;
+
+  }
+
+  /**
+   * Returns the id of a song without registering it.
+   *
+   * @param song the song to look up
+   * @return the song's id, or -1 if it is not registered
+   */
+  public synchronized int find(Song song) {
+
+    Integer id = song != null ? ids.get(song.getKey()) : null;
+
+    return id != null ? id : -1;
+
+  }
+
+  /**
+   * Returns the song registered with the given id: the first of the equal songs registered, or a
+   * copy of it in the album it was registered in if it has moved since.
+   *
+   * @param id the song's id
+   * @return the registered song
+   * @throws IllegalArgumentException if no song has that id
+   */
+  public synchronized Song song(int id) {
+
+    if (id < 0 || id >= size) {
+      throw new IllegalArgumentException();
+    }
+
+    Song song = songs[id];
+
+    // The caller moved the registered song, so a copy with the registered identity takes its place
+
+    if (song.getAlbum() != albums[id]) {
+      song = song.copyIn(albums[id], keys[id]);
+      songs[id] = song;
+    }
+
+    return song;
+
+  }
+
+  /**
+   * Returns the number of registered songs. Ids run from 0 to size - 1.
+   *
+   * @return number of registered songs
+   */
+  public synchronized int size() {
+
+    return size;
+
+  }
+}
@@ -1,10 +1,13 @@
+import java.util.ArrayList;
+
 /**
  * An abstract data type describing common stack functionality. A stack observes a last-in-first-out
- * protocol, where the only accessible value is the most-recently added value.
+ * protocol, where the only accessible value is the most-recently added value. Iterating over a
+ * stack visits its elements from top to bottom without removing them.
  * 
  * @param <T> the type of data contained in this stack
  */
-public interface StackADT<T> {
+public interface StackADT<T> extends Iterable<T> {
 
   /**
    * Add a new element to the top of this stack, assumed to be non-null.
@@ -34,6 +37,13 @@ public interface StackADT<T> {
    */
   public boolean isEmpty();
 
+  /**
+   * Returns the number of elements in the stack.
+   * 
+   * @return the number of elements in the stack
+   */
+  public int size();
+
   /**
    * Returns true if this stack contains the element, false otherwise
    * 
@@ -41,4 +51,11 @@ public interface StackADT<T> {
    * @return true if the stack contains the element, false otherwise
    */
   public boolean contains(T value);
+
+  /**
+   * Returns a new list holding the elements of this stack, ordered from top to bottom
+   * 
+   * @return a list of the stacked elements in LIFO order
+   */
+  public ArrayList<T> getList();
 }
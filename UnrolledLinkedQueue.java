@@ -0,0 +1,464 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.random.RandomGenerator;
+
+/**
+ * A generic queue implementation using an unrolled linked list: a chain of fixed-size chunks, each
+ * holding many elements in an array. Implements the QueueADT interface to provide FIFO
+ * (First-In-First-Out) functionality. Like LinkedQueue it grows without bound with O(1) enqueue and
+ * dequeue, but it pays for one node header and one pointer hop per chunk instead of per element,
+ * which keeps very large queues compact and cache friendly.
+ *
+ * @param <T> the type of elements stored in the queue
+ * @author rishabhaggarwal
+ */
+public class UnrolledLinkedQueue<T> implements QueueADT<T> {
+
+  private static final int DEFAULT_CHUNK_SIZE = 64; // Elements per chunk for the no-arg constructor
+
+  private final int chunkSize; // Number of elements each chunk holds
+
+  private Chunk front; // Chunk holding the first element in queue
+
+  private int head; // Index of the first element within the front chunk
+
+  private Chunk back; // Chunk the next element is added to
+
+  private int tail; // Index within the back chunk where the next element goes
+
+  private Chunk spare; // One emptied chunk kept for reuse, so chunk boundaries rarely allocate
+
+  private int size; // Number of elements in queue
+
+  private int modCount; // Number of structural changes, used by iterators to fail fast
+
+  /**
+   * Creates an empty queue with the default chunk size.
+   */
+  public UnrolledLinkedQueue() {
+
+    this(DEFAULT_CHUNK_SIZE);
+
+  }
+
+  /**
+   * Creates an empty queue whose chunks hold chunkSize elements each.
+   *
+   * @param chunkSize number of elements per chunk
+   * @throws IllegalArgumentException if chunkSize is less than 1
+   */
+  public UnrolledLinkedQueue(int chunkSize) {
+
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException();
+    }
+
+    this.chunkSize = chunkSize;
+
+  }
+
+  /**
+   * Adds a new element to the back of the queue, starting a new chunk when the back one is full.
+   *
+   * @param value the element to be added to the queue
+   */
+  @Override
+  public void enqueue(T value) {
+
+    if (back == null) {
+
+      // First element: start the chain
+
+      front = newChunk();
+      back = front;
+      head = 0;
+      tail = 0;
+
+    } else if (tail == chunkSize) {
+
+      // Back chunk is full: link a new one behind it
+
+      Chunk chunk = newChunk();
+      back.next = chunk;
+      back = chunk;
+      tail = 0;
+
+    }
+
+    back.items[tail++] = value;
+    size++;
+    modCount++;
+
+  }
+
+  /**
+   * Adds all of the given elements to the back of the queue, in iteration order.
+   *
+   * @param values the elements to be added to the queue
+   */
+  @Override
+  public void enqueueAll(Collection<? extends T> values) {
+
+    for (T value : values) {
+      enqueue(value);
+    }
+
+  }
+
+  /**
+   * Removes and returns the element at the front of the queue. A chunk is unlinked once its last
+   * element has been removed.
+   *
+   * @return the first element in queue, or null if empty
+   */
+  @Override
+  public T dequeue() {
+
+    if (this.isEmpty()) {
+      return null;
+    }
+
+    T value = front.get(head);
+
+    // Clear the slot so the chunk does not keep the element alive
+
+    front.items[head++] = null;
+    size--;
+    modCount++;
+
+    if (size == 0) {
+
+      // Queue is empty again: reuse the current chunk from its start
+
+      front.next = null;
+      back = front;
+      head = 0;
+      tail = 0;
+
+    } else if (head == chunkSize) {
+
+      // Front chunk is used up: move on to the next one
+
+      Chunk used = front;
+      front = front.next;
+      head = 0;
+
+      used.next = null;
+      spare = used;
+
+    }
+
+    return value;
+
+  }
+
+  /**
+   * Returns the element at the front of the queue without removing it.
+   *
+   * @return the first element in queue, or null if empty
+   */
+  @Override
+  public T peek() {
+
+    if (this.isEmpty()) {
+      return null;
+    }
+
+    return front.get(head);
+
+  }
+
+  /**
+   * Checks if the queue is empty.
+   *
+   * @return true if queue contains no elements
+   */
+  @Override
+  public boolean isEmpty() {
+
+    return size == 0;
+
+  }
+
+  /**
+   * Returns the number of elements in the queue.
+   *
+   * @return current size of queue
+   */
+  @Override
+  public int size() {
+
+    return this.size;
+
+  }
+
+  /**
+   * Removes all elements from the queue.
+   */
+  @Override
+  public void clear() {
+
+    front = null;
+    back = null;
+    head = 0;
+    tail = 0;
+    size = 0;
+    modCount++;
+
+  }
+
+  /**
+   * Checks if a specific element exists in the queue.
+   *
+   * @param value element to search for
+   * @return true if element is found
+   */
+  @Override
+  public boolean contains(T value) {
+
+    for (T element : this) {
+
+      if (element.equals(value)) {
+        return true;
+      }
+
+    }
+
+    return false;
+
+  }
+
+  /**
+   * Creates an ArrayList containing all elements in the queue. Elements are ordered from front to
+   * back.
+   *
+   * @return ArrayList containing queue elements in FIFO order
+   */
+  @Override
+  public ArrayList<T> getList() {
+
+    ArrayList<T> list = new ArrayList<T>(size);
+
+    for (T element : this) {
+      list.add(element);
+    }
+
+    return list;
+
+  }
+
+  /**
+   * Creates an ArrayList containing the elements at positions from (inclusive) to to (exclusive).
+   * Whole chunks before position from are skipped without reading their elements.
+   *
+   * @param from position of the first element to return
+   * @param to   position after the last element to return
+   * @return ArrayList containing the elements in that window in FIFO order
+   * @throws IllegalArgumentException if from is negative or to is less than from
+   */
+  @Override
+  public ArrayList<T> range(int from, int to) {
+
+    if (from < 0 || to < from) {
+      throw new IllegalArgumentException();
+    }
+
+    int end = Math.min(to, size);
+    ArrayList<T> list = new ArrayList<T>(Math.max(0, end - from));
+
+    if (from >= end) {
+      return list;
+    }
+
+    // Jump to the chunk holding position from
+
+    Chunk chunk = front;
+    int index = head + from;
+
+    while (index >= chunkSize) {
+      chunk = chunk.next;
+      index -= chunkSize;
+    }
+
+    for (int i = from; i < end; i++) {
+
+      if (index == chunkSize) {
+        chunk = chunk.next;
+        index = 0;
+      }
+
+      list.add(chunk.get(index++));
+
+    }
+
+    return list;
+
+  }
+
+  /**
+   * Randomly reorders the elements in the queue with a Fisher-Yates shuffle, swapping elements
+   * directly inside the chunks.
+   *
+   * @param random the source of randomness
+   */
+  @Override
+  public void shuffle(RandomGenerator random) {
+
+    if (size < 2) {
+      return;
+    }
+
+    // Collect the chunks so any position can be reached without walking the chain
+
+    int chunkCount = (head + size + chunkSize - 1) / chunkSize;
+    Object[][] chunks = new Object[chunkCount][];
+
+    Chunk current = front;
+
+    for (int i = 0; i < chunkCount; i++) {
+      chunks[i] = current.items;
+      current = current.next;
+    }
+
+    for (int i = size - 1; i > 0; i--) {
+
+      int a = head + i;
+      int b = head + random.nextInt(i + 1);
+
+      Object swap = chunks[a / chunkSize][a % chunkSize];
+      chunks[a / chunkSize][a % chunkSize] = chunks[b / chunkSize][b % chunkSize];
+      chunks[b / chunkSize][b % chunkSize] = swap;
+
+    }
+
+    modCount++;
+
+  }
+
+  /**
+   * Returns an iterator over the queue from front to back. The iterator reads the chunks in place
+   * and throws ConcurrentModificationException if the queue is modified while iterating.
+   *
+   * @return iterator over the queued elements in FIFO order
+   */
+  @Override
+  public Iterator<T> iterator() {
+
+    return new QueueIterator();
+
+  }
+
+  /**
+   * Returns a spliterator over the queue from front to back that reports the queue's size.
+   *
+   * @return spliterator over the queued elements in FIFO order
+   */
+  @Override
+  public Spliterator<T> spliterator() {
+
+    return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+
+  }
+
+  /**
+   * Returns an empty chunk, reusing the spare one if there is one.
+   *
+   * @return an empty, unlinked chunk
+   */
+  private Chunk newChunk() {
+
+    if (spare != null) {
+
+      Chunk chunk = spare;
+      spare = null;
+
+      return chunk;
+
+    }
+
+    return new Chunk(chunkSize);
+
+  }
+
+  /**
+   * A node of the unrolled list, holding up to chunkSize elements.
+   */
+  private class Chunk {
+
+    private final Object[] items; // Elements stored in this chunk
+
+    private Chunk next; // Next chunk towards the back of the queue, or null
+
+    /**
+     * Creates an empty chunk.
+     *
+     * @param length number of elements the chunk holds
+     */
+    private Chunk(int length) {
+
+      this.items = new Object[length];
+
+    }
+
+    /**
+     * Returns the element at the given index of this chunk.
+     *
+     * @param i index within the chunk
+     * @return the element stored there
+     */
+    @SuppressWarnings("unchecked")
+    private T get(int i) {
+
+      return (T) items[i];
+
+    }
+  }
+
+  /**
+   * Fail-fast iterator that reads each chunk's array in turn.
+   */
+  private class QueueIterator implements Iterator<T> {
+
+    private Chunk chunk = front; // Chunk holding the next element to return
+
+    private int index = head; // Index of the next element within chunk
+
+    private int remaining = size; // Number of elements not yet returned
+
+    private final int expectedModCount = modCount; // Queue version this iterator was created at
+
+    @Override
+    public boolean hasNext() {
+
+      return remaining > 0;
+
+    }
+
+    @Override
+    public T next() {
+
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+
+      if (remaining == 0) {
+        throw new NoSuchElementException();
+      }
+
+      if (index == chunkSize) {
+        chunk = chunk.next;
+        index = 0;
+      }
+
+      remaining--;
+
+      return chunk.get(index++);
+
+    }
+  }
+}
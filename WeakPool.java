@@ -0,0 +1,134 @@
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe canonicalizing pool that holds its canonical values weakly. Each key maps to at
+ * most one live value; once nothing else refers to a value it can be collected, and its entry is
+ * removed the next time the pool is used. Lookups never lock, so many threads can share a pool.
+ *
+ * <p>
+ * A key must not refer to its value, directly or indirectly, or the value could never be
+ * collected. Pooling the text of a Name works because the Name refers to the text, not the other
+ * way round; pooling a SongKey needs a separate, equal key instance.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of pooled values
+ * @author rishabhaggarwal
+ */
+final class WeakPool<K, V> {
+
+  private final ConcurrentHashMap<K, Entry<K, V>> entries; // Weakly held values by key
+
+  private final ReferenceQueue<V> cleared; // Entries whose values have been collected
+
+  /**
+   * Creates an empty pool.
+   */
+  WeakPool() {
+
+    entries = new ConcurrentHashMap<K, Entry<K, V>>();
+    cleared = new ReferenceQueue<V>();
+
+  }
+
+  /**
+   * Returns the canonical value for key, if there is a live one.
+   *
+   * @param key the key to look up
+   * @return the pooled value, or null if there is none
+   */
+  V get(K key) {
+
+    expunge();
+
+    Entry<K, V> entry = entries.get(key);
+
+    return entry != null ? entry.get() : null;
+
+  }
+
+  /**
+   * Makes value the canonical value for key, unless another thread got there first.
+   *
+   * @param key   the key, which must not refer to value
+   * @param value the value to pool
+   * @return the canonical value for key: value itself, or the one already pooled
+   */
+  V putIfAbsent(K key, V value) {
+
+    Entry<K, V> entry = new Entry<K, V>(key, value, cleared);
+
+    while (true) {
+
+      Entry<K, V> existing = entries.putIfAbsent(key, entry);
+
+      if (existing == null) {
+        return value;
+      }
+
+      V pooled = existing.get();
+
+      if (pooled != null) {
+        return pooled;
+      }
+
+      // The pooled value was collected but its entry is still here: replace it
+
+      entries.remove(key, existing);
+
+    }
+
+  }
+
+  /**
+   * Returns the number of entries in the pool, including ones whose values were collected but not
+   * yet removed.
+   *
+   * @return number of entries
+   */
+  int size() {
+
+    expunge();
+
+    return entries.size();
+
+  }
+
+  /**
+   * Removes the entries whose values have been collected.
+   */
+  @SuppressWarnings("unchecked")
+  private void expunge() {
+
+    Entry<K, V> entry;
+
+    while ((entry = (Entry<K, V>) cleared.poll()) != null) {
+      entries.remove(entry.key, entry);
+    }
+
+  }
+
+  /**
+   * A weak reference to a pooled value that remembers its key, so its entry can be removed once
+   * the value is collected.
+   */
+  private static class Entry<K, V> extends WeakReference<V> {
+
+    private final K key; // Key the value is pooled under
+
+    /**
+     * Creates an entry for the given key and value.
+     *
+     * @param key   the key the value is pooled under
+     * @param value the pooled value
+     * @param queue the queue to enqueue the entry on once the value is collected
+     */
+    private Entry(K key, V value, ReferenceQueue<V> queue) {
+
+      super(value, queue);
+      this.key = key;
+
+    }
+  }
+}
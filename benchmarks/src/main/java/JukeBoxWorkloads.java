@@ -0,0 +1,427 @@
+import jukebox.benchmarks.Workload;
+
+/**
+ * The workloads measured by HotPathBenchmark. They live in the default package so they can use the
+ * jukebox classes directly, and are handed to the benchmark through {@link #create(String)}.
+ *
+ * @author rishabhaggarwal
+ */
+public class JukeBoxWorkloads {
+
+  /**
+   * Creates the workload with the given name.
+   *
+   * @param name name of the workload, as listed in HotPathBenchmark
+   * @return a new, not yet set up workload
+   * @throws IllegalArgumentException if there is no workload with that name
+   */
+  public static Workload create(String name) {
+
+    switch (name) {
+      case "linkedQueueEnqueueDequeue":
+        return new QueueEnqueueDequeue(new LinkedQueue<>());
+      case "pooledLinkedQueueEnqueueDequeue":
+        return new QueueEnqueueDequeue(LinkedQueue.pooled(1 << 20));
+      case "unrolledQueueEnqueueDequeue":
+        return new QueueEnqueueDequeue(new UnrolledLinkedQueue<>());
+      case "linkedStackPushPop":
+        return new LinkedStackPushPop();
+      case "linkedQueueGetList":
+        return new LinkedQueueGetList();
+      case "linkedStackGetList":
+        return new LinkedStackGetList();
+      case "albumAddSong":
+        return new AlbumAddSong();
+      case "jukeBoxAddSongToQueue":
+        return new JukeBoxAddSongToQueue(false);
+      case "songIdJukeBoxAddSongToQueue":
+        return new JukeBoxAddSongToQueue(true);
+      case "jukeBoxAddAlbumToQueue":
+        return new JukeBoxAddAlbumToQueue();
+      case "jukeBoxShuffleSongQueue":
+        return new JukeBoxShuffleSongQueue(false);
+      case "songIdJukeBoxShuffleSongQueue":
+        return new JukeBoxShuffleSongQueue(true);
+      case "jukeBoxToString":
+        return new JukeBoxToString(false);
+      case "jukeBoxToStringAfterChange":
+        return new JukeBoxToString(true);
+      default:
+        throw new IllegalArgumentException("Unknown workload: " + name);
+    }
+
+  }
+
+  /**
+   * Creates distinct songs with no album.
+   *
+   * @param size number of songs
+   * @return the songs
+   */
+  private static Song[] songs(int size) {
+
+    Song[] songs = new Song[size];
+
+    for (int i = 0; i < size; i++) {
+      songs[i] = new Song("Song" + i, "Artist" + (i % 100));
+    }
+
+    return songs;
+
+  }
+
+  /**
+   * Creates a jukebox holding size distinct songs.
+   *
+   * @param size number of songs and capacity of the jukebox
+   * @return the full jukebox
+   */
+  private static JukeBox fullJukeBox(int size) {
+
+    return fullJukeBox(size, new LinkedQueue<Song>());
+
+  }
+
+  /**
+   * Creates a jukebox holding size distinct songs in the given queue.
+   *
+   * @param size      number of songs and capacity of the jukebox
+   * @param songQueue empty queue for the jukebox to store its songs in
+   * @return the full jukebox
+   */
+  private static JukeBox fullJukeBox(int size, QueueADT<Song> songQueue) {
+
+    JukeBox jukebox = new JukeBox(size, songQueue);
+
+    for (Song song : songs(size)) {
+      jukebox.addSongToQueue(song);
+    }
+
+    return jukebox;
+
+  }
+
+  /**
+   * Fills a queue with size elements and drains it again.
+   */
+  private static class QueueEnqueueDequeue implements Workload {
+
+    private final QueueADT<Integer> queue;
+
+    private Integer[] values;
+
+    /**
+     * Creates the workload around the given empty queue.
+     *
+     * @param queue the queue to fill and drain, such as a LinkedQueue with or without node
+     *              recycling, or an UnrolledLinkedQueue
+     */
+    private QueueEnqueueDequeue(QueueADT<Integer> queue) {
+
+      this.queue = queue;
+
+    }
+
+    @Override
+    public void setUp(int size) {
+
+      values = new Integer[size];
+
+      for (int i = 0; i < size; i++) {
+        values[i] = i;
+      }
+
+    }
+
+    @Override
+    public Object run() {
+
+      for (Integer value : values) {
+        queue.enqueue(value);
+      }
+
+      Integer last = null;
+
+      while (!queue.isEmpty()) {
+        last = queue.dequeue();
+      }
+
+      return last;
+
+    }
+  }
+
+  /**
+   * Pushes size elements onto a stack and pops them again.
+   */
+  private static class LinkedStackPushPop implements Workload {
+
+    private final LinkedStack<Integer> stack = new LinkedStack<>();
+
+    private Integer[] values;
+
+    @Override
+    public void setUp(int size) {
+
+      values = new Integer[size];
+
+      for (int i = 0; i < size; i++) {
+        values[i] = i;
+      }
+
+    }
+
+    @Override
+    public Object run() {
+
+      for (Integer value : values) {
+        stack.push(value);
+      }
+
+      Integer last = null;
+
+      while (!stack.isEmpty()) {
+        last = stack.pop();
+      }
+
+      return last;
+
+    }
+  }
+
+  /**
+   * Copies a queue of size elements into a list.
+   */
+  private static class LinkedQueueGetList implements Workload {
+
+    private final LinkedQueue<Integer> queue = new LinkedQueue<>();
+
+    @Override
+    public void setUp(int size) {
+
+      for (int i = 0; i < size; i++) {
+        queue.enqueue(i);
+      }
+
+    }
+
+    @Override
+    public Object run() {
+
+      return queue.getList();
+
+    }
+  }
+
+  /**
+   * Copies a stack of size elements into a list.
+   */
+  private static class LinkedStackGetList implements Workload {
+
+    private final LinkedStack<Integer> stack = new LinkedStack<>();
+
+    @Override
+    public void setUp(int size) {
+
+      for (int i = 0; i < size; i++) {
+        stack.push(i);
+      }
+
+    }
+
+    @Override
+    public Object run() {
+
+      return stack.getList();
+
+    }
+  }
+
+  /**
+   * Adds size songs to a new album.
+   */
+  private static class AlbumAddSong implements Workload {
+
+    private Song[] songs;
+
+    @Override
+    public void setUp(int size) {
+
+      songs = songs(size);
+
+    }
+
+    @Override
+    public Object run() {
+
+      Album album = new Album("Benchmark Album");
+
+      for (Song song : songs) {
+        album.addSong(song);
+      }
+
+      return album;
+
+    }
+  }
+
+  /**
+   * Adds size songs one by one to a new jukebox of that capacity.
+   */
+  private static class JukeBoxAddSongToQueue implements Workload {
+
+    private final boolean songIds;
+
+    private Song[] songs;
+
+    private SongRegistry registry;
+
+    /**
+     * Creates the workload.
+     *
+     * @param songIds whether the jukebox runs on a SongIdQueue, whose registry already holds the
+     *                songs, instead of a LinkedQueue
+     */
+    private JukeBoxAddSongToQueue(boolean songIds) {
+
+      this.songIds = songIds;
+
+    }
+
+    @Override
+    public void setUp(int size) {
+
+      songs = songs(size);
+      registry = new SongRegistry();
+
+      for (Song song : songs) {
+        registry.idOf(song);
+      }
+
+    }
+
+    @Override
+    public Object run() {
+
+      JukeBox jukebox = songIds ? new JukeBox(songs.length, new SongIdQueue(registry, songs.length))
+          : new JukeBox(songs.length);
+
+      for (Song song : songs) {
+        jukebox.addSongToQueue(song);
+      }
+
+      return jukebox;
+
+    }
+  }
+
+  /**
+   * Builds an album of size songs and adds it to a new jukebox. addAlbumToQueue empties the album,
+   * so the album is rebuilt on every pass; subtract albumAddSong to isolate the jukebox part.
+   */
+  private static class JukeBoxAddAlbumToQueue implements Workload {
+
+    private Song[] songs;
+
+    @Override
+    public void setUp(int size) {
+
+      songs = songs(size);
+
+    }
+
+    @Override
+    public Object run() {
+
+      Album album = new Album("Benchmark Album");
+
+      for (Song song : songs) {
+        album.addSong(song);
+      }
+
+      JukeBox jukebox = new JukeBox(songs.length);
+      jukebox.addAlbumToQueue(album);
+
+      return jukebox;
+
+    }
+  }
+
+  /**
+   * Shuffles a jukebox holding size songs.
+   */
+  private static class JukeBoxShuffleSongQueue implements Workload {
+
+    private final boolean songIds;
+
+    private JukeBox jukebox;
+
+    /**
+     * Creates the workload.
+     *
+     * @param songIds whether the jukebox runs on a SongIdQueue instead of a LinkedQueue
+     */
+    private JukeBoxShuffleSongQueue(boolean songIds) {
+
+      this.songIds = songIds;
+
+    }
+
+    @Override
+    public void setUp(int size) {
+
+      jukebox = fullJukeBox(size, songIds ? new SongIdQueue() : new LinkedQueue<Song>());
+
+    }
+
+    @Override
+    public Object run() {
+
+      jukebox.shuffleSongQueue();
+
+      return jukebox;
+
+    }
+  }
+
+  /**
+   * Renders a jukebox holding size songs. Rendering an unchanged jukebox returns its cached string,
+   * so the variant that changes the queue first plays the front song and queues it again, which
+   * makes every pass build a new string.
+   */
+  private static class JukeBoxToString implements Workload {
+
+    private final boolean change;
+
+    private JukeBox jukebox;
+
+    /**
+     * Creates the workload.
+     *
+     * @param change whether each pass moves the front song to the back before rendering
+     */
+    private JukeBoxToString(boolean change) {
+
+      this.change = change;
+
+    }
+
+    @Override
+    public void setUp(int size) {
+
+      jukebox = fullJukeBox(size);
+
+    }
+
+    @Override
+    public Object run() {
+
+      if (change) {
+        jukebox.addSongToQueue(jukebox.playSong());
+      }
+
+      return jukebox.toString();
+
+    }
+  }
+}
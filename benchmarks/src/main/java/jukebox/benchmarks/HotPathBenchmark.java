@@ -0,0 +1,71 @@
+package jukebox.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the jukebox hot paths at sizes from 10 to 1M elements. Each invocation runs one full
+ * pass of the selected workload, so the score is the time for the whole pass. Run with
+ * {@code java -jar target/benchmarks.jar -prof gc} to also report allocation rates.
+ *
+ * @author rishabhaggarwal
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HotPathBenchmark {
+
+  // Names of the workloads in JukeBoxWorkloads
+  @Param({"linkedQueueEnqueueDequeue", "pooledLinkedQueueEnqueueDequeue",
+      "unrolledQueueEnqueueDequeue", "linkedStackPushPop", "linkedQueueGetList",
+      "linkedStackGetList", "albumAddSong", "jukeBoxAddSongToQueue", "songIdJukeBoxAddSongToQueue",
+      "jukeBoxAddAlbumToQueue", "jukeBoxShuffleSongQueue", "songIdJukeBoxShuffleSongQueue",
+      "jukeBoxToString", "jukeBoxToStringAfterChange"})
+  public String workload;
+
+  // Number of elements each pass works on
+  @Param({"10", "1000", "100000", "1000000"})
+  public int size;
+
+  private Workload instance; // The selected workload, set up for this trial
+
+  /**
+   * Looks up the workload in the default package and prepares it for this trial.
+   *
+   * @throws ReflectiveOperationException if JukeBoxWorkloads cannot be found or called
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws ReflectiveOperationException {
+
+    instance = (Workload) Class.forName("JukeBoxWorkloads").getMethod("create", String.class)
+        .invoke(null, workload);
+    instance.setUp(size);
+
+  }
+
+  /**
+   * Runs one pass of the selected workload.
+   *
+   * @return the workload's result, consumed by JMH
+   */
+  @Benchmark
+  public Object run() {
+
+    return instance.run();
+
+  }
+}
@@ -0,0 +1,26 @@
+package jukebox.benchmarks;
+
+/**
+ * One hot path of the jukebox, prepared for a given number of elements and run repeatedly by
+ * {@link HotPathBenchmark}. The jukebox classes live in the default package, which code in a named
+ * package cannot refer to, so workloads are implemented in the default package (see
+ * JukeBoxWorkloads) and reached through this interface.
+ *
+ * @author rishabhaggarwal
+ */
+public interface Workload {
+
+  /**
+   * Builds the data the workload runs against, such as pre-created songs or a filled queue.
+   *
+   * @param size number of elements the workload operates on
+   */
+  public void setUp(int size);
+
+  /**
+   * Runs one pass of the workload over all of its elements.
+   *
+   * @return a result to hand to the blackhole, so the work is not optimized away
+   */
+  public Object run();
+}